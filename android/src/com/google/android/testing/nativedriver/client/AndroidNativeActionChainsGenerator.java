@@ -0,0 +1,227 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.client;
+
+import com.google.android.testing.nativedriver.common.InputAction;
+import com.google.android.testing.nativedriver.common.PerformsActions;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.openqa.selenium.Keys;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Action;
+import org.openqa.selenium.interactions.ActionChainsGenerator;
+
+import java.util.List;
+
+/**
+ * An {@code ActionChainsGenerator} which compiles the whole chain into a
+ * single list of {@link InputAction}s. Performing the built {@code Action}
+ * sends the list to the server in one request, so there are no network
+ * round trips between the steps of a drag or a key chord. The mouse actions
+ * of the chain are performed with the touch screen.
+ *
+ * <p>In addition to the methods of {@code ActionChainsGenerator}, this class
+ * can add pauses and the gestures of
+ * {@link com.google.android.testing.nativedriver.common.Touch} to the chain.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+public class AndroidNativeActionChainsGenerator
+    implements ActionChainsGenerator {
+  /**
+   * The time in milliseconds taken by the move of
+   * {@link #dragAndDrop(WebElement, WebElement)}.
+   */
+  public static final long DRAG_DURATION = 500;
+
+  private final PerformsActions driver;
+  private final List<InputAction> actions = Lists.newArrayList();
+
+  public AndroidNativeActionChainsGenerator(PerformsActions driver) {
+    this.driver = Preconditions.checkNotNull(driver);
+  }
+
+  private AndroidNativeActionChainsGenerator add(InputAction action) {
+    actions.add(action);
+    return this;
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator keyDown(Keys theKey) {
+    return keyDown(null, theKey);
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator keyDown(
+      WebElement element, Keys theKey) {
+    return add(InputAction.keyDown(element, theKey.charAt(0)));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator keyUp(Keys theKey) {
+    return keyUp(null, theKey);
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator keyUp(
+      WebElement element, Keys theKey) {
+    return add(InputAction.keyUp(element, theKey.charAt(0)));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator sendKeys(
+      CharSequence... keysToSend) {
+    return sendKeys(null, keysToSend);
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator sendKeys(
+      WebElement element, CharSequence... keysToSend) {
+    return add(InputAction.sendKeys(element, Joiner.on("").join(keysToSend)));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator clickAndHold(WebElement onElement) {
+    return add(InputAction.touchDown(onElement));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator release(WebElement onElement) {
+    return add(InputAction.touchUp(onElement));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator click(WebElement onElement) {
+    return add(InputAction.tap(onElement));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator click() {
+    return add(InputAction.tap(null));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator doubleClick(WebElement onElement) {
+    return add(InputAction.doubleTap(onElement));
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator moveToElement(
+      WebElement toElement) {
+    return moveToElement(toElement, 0, 0);
+  }
+
+  @Override
+  public AndroidNativeActionChainsGenerator moveToElement(
+      WebElement toElement, int xOffset, int yOffset) {
+    return add(InputAction.touchMove(
+        Preconditions.checkNotNull(toElement), xOffset, yOffset));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The offset is from the center of the last element touched.
+   */
+  @Override
+  public AndroidNativeActionChainsGenerator moveByOffset(
+      int xOffset, int yOffset) {
+    return add(InputAction.touchMove(null, xOffset, yOffset));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This is performed as a long click.
+   */
+  @Override
+  public AndroidNativeActionChainsGenerator contextClick(
+      WebElement onElement) {
+    return add(InputAction.longClick(onElement));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This is performed as a long press on the source, followed by a move
+   * to the target taking {@link #DRAG_DURATION} milliseconds.
+   */
+  @Override
+  public AndroidNativeActionChainsGenerator dragAndDrop(
+      WebElement source, WebElement target) {
+    return add(InputAction.drag(source, target, DRAG_DURATION));
+  }
+
+  /**
+   * Adds a pause of the given time to the chain.
+   */
+  public AndroidNativeActionChainsGenerator pause(long durationInMillis) {
+    return add(InputAction.pause(durationInMillis));
+  }
+
+  /**
+   * Adds a swipe to the chain.
+   *
+   * @see com.google.android.testing.nativedriver.common.Touch#swipe
+   */
+  public AndroidNativeActionChainsGenerator swipe(WebElement onElement,
+      int xOffset, int yOffset, long durationInMillis) {
+    return add(
+        InputAction.swipe(onElement, xOffset, yOffset, durationInMillis));
+  }
+
+  /**
+   * Adds a fling to the chain.
+   *
+   * @see com.google.android.testing.nativedriver.common.Touch#fling
+   */
+  public AndroidNativeActionChainsGenerator fling(
+      WebElement onElement, int xOffset, int yOffset) {
+    return add(InputAction.fling(onElement, xOffset, yOffset));
+  }
+
+  /**
+   * Adds a pinch to the chain.
+   *
+   * @see com.google.android.testing.nativedriver.common.Touch#pinch
+   */
+  public AndroidNativeActionChainsGenerator pinch(WebElement onElement,
+      int startDistance, int endDistance, long durationInMillis) {
+    return add(InputAction.pinch(
+        onElement, startDistance, endDistance, durationInMillis));
+  }
+
+  /**
+   * Returns an {@code Action} which performs the chain built so far. The
+   * chain may be built further after this, which does not change the
+   * returned {@code Action}.
+   */
+  @Override
+  public Action build() {
+    final List<InputAction> chain = ImmutableList.copyOf(actions);
+    return new Action() {
+      @Override
+      public void perform() {
+        driver.performActions(chain);
+      }
+    };
+  }
+}
@@ -0,0 +1,216 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.client;
+
+import com.google.android.testing.nativedriver.common.AndroidNativeDriverCommand;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Closeables;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.BeanToJsonConverter;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.JsonException;
+import org.openqa.selenium.remote.JsonToBeanConverter;
+import org.openqa.selenium.remote.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * A {@code CommandExecutor} which sends the commands specific to Android
+ * NativeDriver to the server, and delegates all other commands to an
+ * {@link HttpCommandExecutor}. The {@code HttpCommandExecutor} only knows
+ * about the commands in {@link org.openqa.selenium.remote.DriverCommand}, so
+ * it cannot be used alone to call the additional servlet mappings registered
+ * by the server.
+ */
+public class AndroidNativeCommandExecutor implements CommandExecutor {
+  private static final String SESSION_PATH = "/session/:sessionId/";
+  private static final String SESSION_ID_PARAMETER = "sessionId";
+
+  private static class CommandInfo {
+    private final String method;
+    private final String path;
+
+    private CommandInfo(String method, String path) {
+      this.method = method;
+      this.path = path;
+    }
+  }
+
+  private static final Map<String, CommandInfo> ANDROID_COMMANDS
+      = ImmutableMap.<String, CommandInfo>builder()
+          .put(AndroidNativeDriverCommand.FIND_ELEMENTS_IN_BATCH,
+              post(SESSION_PATH + "elements/batch"))
+          .put(AndroidNativeDriverCommand.GET_HIERARCHY_DIFF,
+              post(SESSION_PATH + "hierarchy/diff"))
+          .put(AndroidNativeDriverCommand.WAIT_FOR_QUIESCENCE,
+              post(SESSION_PATH + "quiescence"))
+          .put(AndroidNativeDriverCommand.WAIT_FOR_ELEMENTS,
+              post(SESSION_PATH + "elements/wait"))
+          .put(AndroidNativeDriverCommand.GET_METRICS,
+              get(SESSION_PATH + "metrics"))
+          .put(AndroidNativeDriverCommand.PERFORM_ACTIONS,
+              post(SESSION_PATH + "actions"))
+          .put(AndroidNativeDriverCommand.START_INPUT_RECORDING,
+              post(SESSION_PATH + "input/record"))
+          .put(AndroidNativeDriverCommand.STOP_INPUT_RECORDING,
+              post(SESSION_PATH + "input/record/stop"))
+          .put(AndroidNativeDriverCommand.REPLAY_INPUT,
+              post(SESSION_PATH + "input/replay"))
+          .build();
+
+  private final URL remoteServer;
+  private final CommandExecutor delegate;
+
+  public AndroidNativeCommandExecutor(URL remoteServer) {
+    this(remoteServer, new HttpCommandExecutor(remoteServer));
+  }
+
+  /**
+   * @param remoteServer the URL of the server, to which the Android
+   *        NativeDriver commands are sent
+   * @param delegate executes all other commands
+   */
+  public AndroidNativeCommandExecutor(
+      URL remoteServer, CommandExecutor delegate) {
+    this.remoteServer = Preconditions.checkNotNull(remoteServer);
+    this.delegate = Preconditions.checkNotNull(delegate);
+  }
+
+  private static CommandInfo get(String path) {
+    return new CommandInfo("GET", path);
+  }
+
+  private static CommandInfo post(String path) {
+    return new CommandInfo("POST", path);
+  }
+
+  public URL getAddressOfRemoteServer() {
+    return remoteServer;
+  }
+
+  @Override
+  public Response execute(Command command) throws IOException {
+    CommandInfo info = ANDROID_COMMANDS.get(command.getName());
+
+    if (info == null) {
+      return delegate.execute(command);
+    }
+
+    HttpURLConnection connection = (HttpURLConnection)
+        new URL(remoteServer.toString() + expandPath(info.path, command))
+            .openConnection();
+
+    try {
+      connection.setRequestMethod(info.method);
+      connection.setRequestProperty("Accept", "application/json");
+
+      if ("POST".equals(info.method)) {
+        connection.setRequestProperty(
+            "Content-Type", "application/json; charset=utf-8");
+        connection.setDoOutput(true);
+
+        OutputStream requestBody = connection.getOutputStream();
+        try {
+          requestBody.write(new BeanToJsonConverter()
+              .convert(command.getParameters()).getBytes(Charsets.UTF_8));
+        } finally {
+          Closeables.closeQuietly(requestBody);
+        }
+      }
+
+      return readResponse(connection);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Replaces each {@code :name} segment of the path with the session ID or
+   * the command parameter of the same name.
+   */
+  private static String expandPath(String path, Command command) {
+    StringBuilder expanded = new StringBuilder();
+
+    for (String segment : path.split("/")) {
+      if (segment.length() == 0) {
+        continue;
+      }
+
+      expanded.append('/');
+
+      if (!segment.startsWith(":")) {
+        expanded.append(segment);
+        continue;
+      }
+
+      String name = segment.substring(1);
+      Object value = SESSION_ID_PARAMETER.equals(name)
+          ? command.getSessionId() : command.getParameters().get(name);
+
+      if (value == null) {
+        throw new IllegalArgumentException(String.format(
+            "Missing required parameter '%s' for command: %s",
+            name, command));
+      }
+
+      expanded.append(value);
+    }
+
+    return expanded.toString();
+  }
+
+  private static Response readResponse(HttpURLConnection connection)
+      throws IOException {
+    int status = connection.getResponseCode();
+    InputStream responseStream = (status < 400)
+        ? connection.getInputStream() : connection.getErrorStream();
+
+    if (responseStream == null) {
+      throw new WebDriverException(
+          "Empty response from server. HTTP status: " + status);
+    }
+
+    String body;
+    try {
+      body = CharStreams.toString(
+          new InputStreamReader(responseStream, Charsets.UTF_8));
+    } finally {
+      Closeables.closeQuietly(responseStream);
+    }
+
+    try {
+      return new JsonToBeanConverter().convert(Response.class, body);
+    } catch (JsonException exception) {
+      throw new WebDriverException(String.format(
+          "Could not parse server response (HTTP status %d): %s",
+          status, body), exception);
+    }
+  }
+}
@@ -19,13 +19,27 @@ package com.google.android.testing.nativedriver.client;
 
 import com.google.android.testing.nativedriver.common.AndroidCapabilities;
 import com.google.android.testing.nativedriver.common.AndroidNativeDriverCommand;
+import com.google.android.testing.nativedriver.common.FindsBySelector;
 import com.google.android.testing.nativedriver.common.FindsByText;
+import com.google.android.testing.nativedriver.common.FindsInBatch;
+import com.google.android.testing.nativedriver.common.HierarchyDiffKeys;
+import com.google.android.testing.nativedriver.common.InputAction;
+import com.google.android.testing.nativedriver.common.Locator;
+import com.google.android.testing.nativedriver.common.PerformsActions;
+import com.google.android.testing.nativedriver.common.RecordsInput;
+import com.google.android.testing.nativedriver.common.WaitCondition;
+import com.google.android.testing.nativedriver.common.WaitsForElements;
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.Closeables;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.HasInputDevices;
 import org.openqa.selenium.Keyboard;
 import org.openqa.selenium.Keys;
@@ -47,7 +61,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.imageio.ImageIO;
@@ -61,8 +78,9 @@ import javax.imageio.ImageIO;
  * @author Tomohiro Kaizu
  */
 public class AndroidNativeDriver
-    extends RemoteWebDriver implements FindsByText, Rotatable, HasInputDevices,
-    TakesScreenshot {
+    extends RemoteWebDriver implements FindsByText, FindsBySelector,
+    FindsInBatch, WaitsForElements, PerformsActions, RecordsInput,
+    Rotatable, HasInputDevices, TakesScreenshot {
   private class AndroidKeyboard implements Keyboard {
     @Override
     public void sendKeys(CharSequence... keysToSend) {
@@ -154,7 +172,18 @@ public class AndroidNativeDriver
    */
   protected AndroidNativeDriver(
       CommandExecutor executor, @Nullable AdbConnection adbConnection) {
-    super(Preconditions.checkNotNull(executor), AndroidCapabilities.get());
+    this(executor, adbConnection, AndroidCapabilities.get());
+  }
+
+  /**
+   * Creates an instance which requests the given capabilities from the
+   * server, which should include those of {@link AndroidCapabilities#get()}.
+   *
+   * @see #AndroidNativeDriver(CommandExecutor, AdbConnection)
+   */
+  protected AndroidNativeDriver(CommandExecutor executor,
+      @Nullable AdbConnection adbConnection, Capabilities desiredCapabilities) {
+    super(Preconditions.checkNotNull(executor), desiredCapabilities);
     setElementConverter(new JsonToWebElementConverter(this) {
         @Override
         protected RemoteWebElement newRemoteWebElement() {
@@ -234,6 +263,16 @@ public class AndroidNativeDriver
     return findElements(USING_TEXT, using);
   }
 
+  @Override
+  public WebElement findElementBySelector(String using) {
+    return findElement(USING_SELECTOR, using);
+  }
+
+  @Override
+  public List<WebElement> findElementsBySelector(String using) {
+    return findElements(USING_SELECTOR, using);
+  }
+
   @SuppressWarnings("unchecked")
   public List<AndroidNativeElement> findAndroidNativeElements(By by) {
     return (List) findElements(by);
@@ -244,6 +283,212 @@ public class AndroidNativeDriver
     return (AndroidNativeElement) super.findElement(by);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>All of the locators are sent to the server in a single request. This
+   * requires the driver to be built with an
+   * {@link AndroidNativeCommandExecutor}, which is the default when using
+   * {@link AndroidNativeDriverBuilder#withServer(URL)}.
+   */
+  @Override
+  public Map<Locator, List<WebElement>> findElementsInBatch(
+      List<Locator> locators) {
+    List<Map<String, String>> rawLocators = Lists.newArrayList();
+    for (Locator locator : locators) {
+      rawLocators.add(locator.toJson());
+    }
+
+    Object value = execute(AndroidNativeDriverCommand.FIND_ELEMENTS_IN_BATCH,
+        ImmutableMap.of("locators", rawLocators)).getValue();
+
+    Map<Locator, List<WebElement>> found = Maps.newLinkedHashMap();
+    for (Object rawResult : (List<?>) value) {
+      Map<?, ?> result = (Map<?, ?>) rawResult;
+      List<WebElement> elements = Lists.newArrayList();
+      for (Object element : (List<?>) result.get("elements")) {
+        elements.add((WebElement) element);
+      }
+
+      found.put(Locator.fromJson((Map<?, ?>) result.get("locator")),
+          ImmutableList.copyOf(elements));
+    }
+
+    return found;
+  }
+
+  /**
+   * Finds the elements matching each of the given locators in a single
+   * request.
+   *
+   * @see #findElementsInBatch(List)
+   */
+  public Map<Locator, List<WebElement>> findElementsInBatch(
+      Locator... locators) {
+    return findElementsInBatch(Arrays.asList(locators));
+  }
+
+  @Override
+  public List<WebElement> waitForElements(Locator locator,
+      WaitCondition condition, @Nullable String argument,
+      long timeoutInMillis) {
+    Map<String, Object> parameters = Maps.newHashMap();
+    parameters.put("locator", locator.toJson());
+    parameters.put("condition", condition.getName());
+    parameters.put("ms", timeoutInMillis);
+    if (argument != null) {
+      parameters.put("argument", argument);
+    }
+
+    Object value = execute(
+        AndroidNativeDriverCommand.WAIT_FOR_ELEMENTS, parameters).getValue();
+
+    List<WebElement> elements = Lists.newArrayList();
+    for (Object element : (List<?>) value) {
+      elements.add((WebElement) element);
+    }
+
+    return elements;
+  }
+
+  /**
+   * Waits on the device until the elements matching {@code locator} satisfy
+   * {@code condition}, which must not take an argument.
+   *
+   * @see #waitForElements(Locator, WaitCondition, String, long)
+   */
+  public List<WebElement> waitForElements(Locator locator,
+      WaitCondition condition, long time, TimeUnit unit) {
+    return waitForElements(locator, condition, null,
+        TimeUnit.MILLISECONDS.convert(time, unit));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>All of the actions are sent to the server in a single request. This
+   * requires the driver to be built with an
+   * {@link AndroidNativeCommandExecutor}. The elements the actions refer to
+   * must have been found with this driver.
+   */
+  @Override
+  public void performActions(List<InputAction> actions) {
+    Function<WebElement, String> idsOfElements
+        = new Function<WebElement, String>() {
+          @Override
+          public String apply(WebElement element) {
+            Preconditions.checkArgument(element instanceof RemoteWebElement,
+                "Element was not found with this driver: %s", element);
+            return ((RemoteWebElement) element).getId();
+          }
+        };
+
+    List<Map<String, Object>> rawActions = Lists.newArrayList();
+    for (InputAction action : actions) {
+      rawActions.add(action.toJson(idsOfElements));
+    }
+
+    execute(AndroidNativeDriverCommand.PERFORM_ACTIONS,
+        ImmutableMap.of("actions", rawActions));
+  }
+
+  @Override
+  public void startInputRecording(String devicePath, String source) {
+    execute(AndroidNativeDriverCommand.START_INPUT_RECORDING,
+        ImmutableMap.of("path", devicePath, "source", source));
+  }
+
+  @Override
+  public int stopInputRecording() {
+    return ((Number) execute(AndroidNativeDriverCommand.STOP_INPUT_RECORDING)
+        .getValue()).intValue();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The log file can be copied to and from the device with
+   * {@code adb push} and {@code adb pull}, to replay a recording on other
+   * devices.
+   */
+  @Override
+  public int replayInput(String devicePath, double speed) {
+    return ((Number) execute(AndroidNativeDriverCommand.REPLAY_INPUT,
+        ImmutableMap.of("path", devicePath, "speed", speed)).getValue())
+        .intValue();
+  }
+
+  /**
+   * Returns a builder of action chains which are performed in a single
+   * request to the server.
+   *
+   * @see AndroidNativeActionChainsGenerator
+   */
+  @Override
+  public AndroidNativeActionChainsGenerator actionsBuilder() {
+    return new AndroidNativeActionChainsGenerator(this);
+  }
+
+  /**
+   * Returns the performance counters of the server, for attributing the
+   * latency of commands. The result has these entries:
+   *
+   * <ul>
+   *   <li>{@code runner}: for each kind of operation run on the main
+   *       application thread, histograms of the time spent waiting for the
+   *       thread ({@code queueDelay}) and running ({@code execution}). The
+   *       kind {@code *} includes every operation.</li>
+   *   <li>{@code search}: counts of the elements captured and visited by
+   *       searches.</li>
+   *   <li>{@code watchdog}: reports of operations which kept the main thread
+   *       busy for too long, with its stack.</li>
+   * </ul>
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getMetrics() {
+    return (Map<String, Object>) execute(AndroidNativeDriverCommand.GET_METRICS)
+        .getValue();
+  }
+
+  /**
+   * Returns the changes to the element hierarchy since the given version, in
+   * the format described in {@link HierarchyDiffKeys}. Most callers should
+   * use a {@link HierarchyMirror} instead.
+   *
+   * @param since a version returned by an earlier call, or zero to get the
+   *        whole hierarchy
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getHierarchyDiff(long since) {
+    return (Map<String, Object>) execute(
+        AndroidNativeDriverCommand.GET_HIERARCHY_DIFF,
+        ImmutableMap.of(HierarchyDiffKeys.SINCE, since)).getValue();
+  }
+
+  /**
+   * Creates a {@link HierarchyMirror} which keeps a copy of the element
+   * hierarchy of this driver.
+   */
+  public HierarchyMirror newHierarchyMirror() {
+    return new HierarchyMirror(this);
+  }
+
+  /**
+   * Waits until the UI of the application is quiet: the main thread is idle,
+   * no layout is pending and no animation is running. Use this after an
+   * action which starts an animation or asynchronous layout, instead of
+   * sleeping for a fixed time.
+   *
+   * @param time the longest time to wait
+   * @param unit the unit of {@code time}
+   * @throws org.openqa.selenium.WebDriverException if the UI does not become
+   *         quiet in time
+   */
+  public void waitForQuiescence(long time, TimeUnit unit) {
+    execute(AndroidNativeDriverCommand.WAIT_FOR_QUIESCENCE,
+        ImmutableMap.of("ms", TimeUnit.MILLISECONDS.convert(time, unit)));
+  }
+
   @Override
   public void rotate(ScreenOrientation orientation) {
     // Refers to org.openqa.selenium.android.AndroidDriver
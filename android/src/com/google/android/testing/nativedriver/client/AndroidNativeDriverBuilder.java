@@ -17,11 +17,12 @@ limitations under the License.
 
 package com.google.android.testing.nativedriver.client;
 
+import com.google.android.testing.nativedriver.common.AndroidCapabilities;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 
 import org.openqa.selenium.remote.CommandExecutor;
-import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -54,6 +55,7 @@ public class AndroidNativeDriverBuilder {
 
   @Nullable private CommandExecutor commandExecutor;
   @Nullable private AdbConnection adbConnection;
+  private final DesiredCapabilities capabilities = AndroidCapabilities.get();
 
   public AndroidNativeDriverBuilder withAdbConnection(
       @Nullable AdbConnection adbConnection) {
@@ -67,7 +69,7 @@ public class AndroidNativeDriverBuilder {
 
   public AndroidNativeDriverBuilder withServer(URL url) {
     this.commandExecutor
-        = new HttpCommandExecutor(Preconditions.checkNotNull(url));
+        = new AndroidNativeCommandExecutor(Preconditions.checkNotNull(url));
     return this;
   }
 
@@ -77,8 +79,18 @@ public class AndroidNativeDriverBuilder {
     return this;
   }
 
+  /**
+   * Requests a capability from the server, such as one of the constants in
+   * {@link AndroidCapabilities}.
+   */
+  public AndroidNativeDriverBuilder withCapability(String name, Object value) {
+    capabilities.setCapability(Preconditions.checkNotNull(name), value);
+    return this;
+  }
+
   public AndroidNativeDriver build() {
     return new AndroidNativeDriver(
-        Preconditions.checkNotNull(commandExecutor), adbConnection);
+        Preconditions.checkNotNull(commandExecutor), adbConnection,
+        capabilities);
   }
 }
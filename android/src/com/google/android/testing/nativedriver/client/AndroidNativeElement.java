@@ -17,6 +17,7 @@ limitations under the License.
 
 package com.google.android.testing.nativedriver.client;
 
+import com.google.android.testing.nativedriver.common.FindsBySelector;
 import com.google.android.testing.nativedriver.common.FindsByText;
 import com.google.common.base.Preconditions;
 
@@ -35,7 +36,7 @@ import java.util.List;
  * @author Matt DeVore
  */
 public class AndroidNativeElement
-    extends RemoteWebElement implements FindsByText {
+    extends RemoteWebElement implements FindsByText, FindsBySelector {
   /**
    * Constructs a new instance and sets the parent WebDriver object.
    *
@@ -64,4 +65,14 @@ public class AndroidNativeElement
   public List<WebElement> findElementsByText(String using) {
     return findElements(USING_TEXT, using);
   }
+
+  @Override
+  public WebElement findElementBySelector(String using) {
+    return findElement(USING_SELECTOR, using);
+  }
+
+  @Override
+  public List<WebElement> findElementsBySelector(String using) {
+    return findElements(USING_SELECTOR, using);
+  }
 }
@@ -0,0 +1,288 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.client;
+
+import com.google.android.testing.nativedriver.common.HierarchyDiffKeys;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A copy of the element hierarchy of the device which is kept up to date by
+ * fetching only the changes since the last update. Observing a screen which
+ * has not changed much costs a few hundred bytes instead of the whole page
+ * source:
+ *
+ * <pre>HierarchyMirror mirror = driver.newHierarchyMirror();
+ * mirror.update();
+ * for (HierarchyMirror.Node window : mirror.getRoots()) {
+ *   ...
+ * }
+ * driver.findElement(By.id("next")).click();
+ * mirror.update();</pre>
+ *
+ * <p>This class is thread-safe.
+ */
+public class HierarchyMirror {
+  private static final Comparator<Node> BY_INDEX = new Comparator<Node>() {
+    @Override
+    public int compare(Node first, Node second) {
+      return first.getIndex() - second.getIndex();
+    }
+  };
+
+  /**
+   * The state of one element at the time of the last update.
+   */
+  public static final class Node {
+    private final int nodeId;
+    @Nullable private final Integer parentId;
+    private final int index;
+    private final String className;
+    @Nullable private final String androidId;
+    @Nullable private final String literalId;
+    @Nullable private final String text;
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+    private final boolean displayed;
+    private final boolean enabled;
+    private final boolean selected;
+
+    private Node(Map<?, ?> json) {
+      nodeId = intValue(json.get(HierarchyDiffKeys.NODE_ID));
+      Object rawParentId = json.get(HierarchyDiffKeys.PARENT_ID);
+      parentId = (rawParentId == null) ? null : intValue(rawParentId);
+      index = intValue(json.get(HierarchyDiffKeys.INDEX));
+      className = (String) json.get(HierarchyDiffKeys.CLASS);
+      androidId = (String) json.get(HierarchyDiffKeys.ANDROID_ID);
+      literalId = (String) json.get(HierarchyDiffKeys.LITERAL_ID);
+      text = (String) json.get(HierarchyDiffKeys.TEXT);
+
+      List<?> bounds = (List<?>) json.get(HierarchyDiffKeys.BOUNDS);
+      left = intValue(bounds.get(0));
+      top = intValue(bounds.get(1));
+      right = intValue(bounds.get(2));
+      bottom = intValue(bounds.get(3));
+
+      displayed = Boolean.TRUE.equals(json.get(HierarchyDiffKeys.DISPLAYED));
+      enabled = Boolean.TRUE.equals(json.get(HierarchyDiffKeys.ENABLED));
+      selected = Boolean.TRUE.equals(json.get(HierarchyDiffKeys.SELECTED));
+    }
+
+    private static int intValue(Object number) {
+      return ((Number) number).intValue();
+    }
+
+    /**
+     * Returns the ID of this node, which stays the same for as long as the
+     * element exists on the device.
+     */
+    public int getNodeId() {
+      return nodeId;
+    }
+
+    /**
+     * Returns the ID of the parent node, or {@code null} if this node is the
+     * root of a window.
+     */
+    @Nullable
+    public Integer getParentId() {
+      return parentId;
+    }
+
+    /**
+     * Returns the position of this node among its siblings.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    /**
+     * Returns the Android ID in the form {@code id/name}, or {@code #number}
+     * if it has no name, or {@code null} if the element has no ID.
+     */
+    @Nullable
+    public String getAndroidId() {
+      return androidId;
+    }
+
+    @Nullable
+    public String getLiteralId() {
+      return literalId;
+    }
+
+    @Nullable
+    public String getText() {
+      return text;
+    }
+
+    public int getLeft() {
+      return left;
+    }
+
+    public int getTop() {
+      return top;
+    }
+
+    public int getRight() {
+      return right;
+    }
+
+    public int getBottom() {
+      return bottom;
+    }
+
+    public boolean isDisplayed() {
+      return displayed;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public boolean isSelected() {
+      return selected;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s#%d[text=%s, id=%s]",
+          className, nodeId, text, androidId);
+    }
+  }
+
+  private final AndroidNativeDriver driver;
+  private final Map<Integer, Node> nodes = Maps.newLinkedHashMap();
+  @Nullable private String epoch;
+  private long version;
+
+  public HierarchyMirror(AndroidNativeDriver driver) {
+    this.driver = Preconditions.checkNotNull(driver);
+  }
+
+  /**
+   * Fetches the changes made to the hierarchy since the last update and
+   * applies them to this copy. The first call fetches the whole hierarchy,
+   * and so does a call after the epoch of the server has changed, for
+   * instance because the server was restarted.
+   *
+   * @return {@code true} if anything changed
+   */
+  public synchronized boolean update() {
+    Map<String, Object> diff = driver.getHierarchyDiff(version);
+    Object newEpoch = diff.get(HierarchyDiffKeys.EPOCH);
+
+    if ((version != 0) && !Objects.equal(epoch, newEpoch)) {
+      // Our version belongs to another epoch, so the diff may be against an
+      // unrelated hierarchy which happens to have the same version.
+      version = 0;
+      diff = driver.getHierarchyDiff(0);
+      newEpoch = diff.get(HierarchyDiffKeys.EPOCH);
+    }
+    epoch = (newEpoch == null) ? null : newEpoch.toString();
+
+    if (Boolean.TRUE.equals(diff.get(HierarchyDiffKeys.FULL))) {
+      nodes.clear();
+    }
+
+    for (Object nodeId : (List<?>) diff.get(HierarchyDiffKeys.REMOVED)) {
+      nodes.remove(((Number) nodeId).intValue());
+    }
+
+    applyNodes((List<?>) diff.get(HierarchyDiffKeys.ADDED));
+    applyNodes((List<?>) diff.get(HierarchyDiffKeys.CHANGED));
+
+    long newVersion
+        = ((Number) diff.get(HierarchyDiffKeys.VERSION)).longValue();
+    boolean changed = (newVersion != version);
+    version = newVersion;
+    return changed;
+  }
+
+  private void applyNodes(List<?> rawNodes) {
+    for (Object rawNode : rawNodes) {
+      Node node = new Node((Map<?, ?>) rawNode);
+      nodes.put(node.getNodeId(), node);
+    }
+  }
+
+  /**
+   * Returns the version of the hierarchy as of the last update, or zero if
+   * {@link #update()} has not been called.
+   */
+  public synchronized long getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the node with the given ID, or {@code null} if there is no such
+   * node.
+   */
+  @Nullable
+  public synchronized Node getNode(int nodeId) {
+    return nodes.get(nodeId);
+  }
+
+  /**
+   * Returns all of the nodes, in no particular order.
+   */
+  public synchronized List<Node> getNodes() {
+    return ImmutableList.copyOf(nodes.values());
+  }
+
+  /**
+   * Returns the root node of each window, in the order of the windows.
+   */
+  public List<Node> getRoots() {
+    return getChildren(null);
+  }
+
+  /**
+   * Returns the children of the node with the given ID, in order.
+   *
+   * @param parentId the ID of the parent node, or {@code null} to get the
+   *        roots of the windows
+   */
+  public synchronized List<Node> getChildren(@Nullable Integer parentId) {
+    List<Node> children = Lists.newArrayList();
+
+    for (Node node : nodes.values()) {
+      if (Objects.equal(parentId, node.getParentId())) {
+        children.add(node);
+      }
+    }
+
+    Collections.sort(children, BY_INDEX);
+    return children;
+  }
+}
@@ -27,6 +27,66 @@ import org.openqa.selenium.remote.DesiredCapabilities;
  * @author Matt DeVore
  */
 public final class AndroidCapabilities {
+  /**
+   * Boolean capability which makes finds of multiple elements return an empty
+   * list as soon as the UI is quiet and the element is absent, rather than
+   * after the implicit wait. This speeds up checks that something is not on
+   * the screen, but an element which appears only after a delay with no UI
+   * activity in between may be missed. Off by default.
+   */
+  public static final String FAST_ABSENCE = "fastAbsence";
+
+  /**
+   * String capability which sets when injected input waits for the
+   * application to be idle: {@link #INPUT_SYNC_PER_EVENT},
+   * {@link #INPUT_SYNC_PER_COMMAND} or {@link #INPUT_SYNC_NONE}. The default
+   * is {@link #INPUT_SYNC_PER_EVENT}, which waits as NativeDriver always
+   * has; suites which favour throughput can ask for fewer waits. With the
+   * other values, every input command waits once at its end, so fewer waits
+   * speed up input without letting the next command run ahead of the
+   * application.
+   */
+  public static final String INPUT_SYNC = "inputSync";
+
+  /**
+   * Value of {@link #INPUT_SYNC} which waits before every injected pointer
+   * event and before each typed string, so the application handles each
+   * event before it sees the next one. This is the default.
+   */
+  public static final String INPUT_SYNC_PER_EVENT = "perEvent";
+
+  /**
+   * Value of {@link #INPUT_SYNC} which waits at the beginning and end of each
+   * input command, such as a tap or the typing of a string.
+   */
+  public static final String INPUT_SYNC_PER_COMMAND = "perCommand";
+
+  /**
+   * Value of {@link #INPUT_SYNC} which only waits at the end of each input
+   * command, or of a whole action sequence.
+   */
+  public static final String INPUT_SYNC_NONE = "none";
+
+  /**
+   * String capability which sets the order in which finds visit elements,
+   * and so which element a find of a single element returns when more than
+   * one matches: {@link #TRAVERSAL_ORDER_DEPTH_FIRST} (the default) or
+   * {@link #TRAVERSAL_ORDER_BREADTH_FIRST}.
+   */
+  public static final String TRAVERSAL_ORDER = "traversalOrder";
+
+  /**
+   * Value of {@link #TRAVERSAL_ORDER} which visits each element before its
+   * children, and its descendants before its next sibling.
+   */
+  public static final String TRAVERSAL_ORDER_DEPTH_FIRST = "depthFirst";
+
+  /**
+   * Value of {@link #TRAVERSAL_ORDER} which visits the elements closest to
+   * the top of the hierarchy first.
+   */
+  public static final String TRAVERSAL_ORDER_BREADTH_FIRST = "breadthFirst";
+
   private AndroidCapabilities() {}
 
   /**
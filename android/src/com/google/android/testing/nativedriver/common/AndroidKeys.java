@@ -22,6 +22,8 @@ import android.view.KeyEvent;
 import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebDriverException;
 
+import javax.annotation.Nullable;
+
 /**
  * Contains keys that can be sent to Android Native driver implementations of
  * {@link org.openqa.selenium.WebElement#sendKeys}. These keys are not easily
@@ -55,6 +57,26 @@ public enum AndroidKeys implements CharSequence {
   ALT_RIGHT('\uE105', KeyEvent.KEYCODE_ALT_RIGHT),
   SHIFT_RIGHT('\uE106', KeyEvent.KEYCODE_SHIFT_RIGHT);
 
+  /**
+   * The first character of the private use area, which holds the characters
+   * of all keys in this class and in {@link Keys}.
+   */
+  private static final char FIRST_KEY_CHAR = '\uE000';
+  private static final int KEY_CHAR_RANGE = 0x200;
+
+  /**
+   * The keys indexed by their character minus {@link #FIRST_KEY_CHAR}, so
+   * that looking up a character does not scan or copy {@link #values()}.
+   */
+  private static final AndroidKeys[] KEYS_BY_CHAR
+      = new AndroidKeys[KEY_CHAR_RANGE];
+
+  static {
+    for (AndroidKeys key : values()) {
+      KEYS_BY_CHAR[key.keyCode - FIRST_KEY_CHAR] = key;
+    }
+  }
+
   private final char keyCode;
   private final int androidKeyCode;
 
@@ -76,10 +98,9 @@ public enum AndroidKeys implements CharSequence {
    */
   public static int keyCodeFor(char keyCode) throws WebDriverException {
     // see whether char is a special key; if so, return that
-    for (AndroidKeys key : AndroidKeys.values()) {
-      if (key.charAt(0) == keyCode) {
-        return key.getAndroidKeyCode();
-      }
+    AndroidKeys key = forChar(keyCode);
+    if (key != null) {
+      return key.getAndroidKeyCode();
     }
 
     // otherwise, figure out corresponding KeyEvent integer
@@ -101,12 +122,19 @@ public enum AndroidKeys implements CharSequence {
    * @return true if key is present within {@code AndroidKeys}
    */
   public static boolean hasAndroidKeyEvent(char keyCode) {
-    for (AndroidKeys key : AndroidKeys.values()) {
-      if (key.charAt(0) == keyCode) {
-        return true;
-      }
-    }
-    return false;
+    return forChar(keyCode) != null;
+  }
+
+  /**
+   * Returns the key whose character is {@code keyCode}, or {@code null} if
+   * there is none. This takes constant time.
+   *
+   * @param keyCode character to look up
+   */
+  @Nullable
+  public static AndroidKeys forChar(char keyCode) {
+    int index = keyCode - FIRST_KEY_CHAR;
+    return (index >= 0 && index < KEY_CHAR_RANGE) ? KEYS_BY_CHAR[index] : null;
   }
 
   /**
@@ -90,4 +90,57 @@ public abstract class AndroidNativeBy extends By {
       }
     };
   }
+
+  /**
+   * Creates an instance of {@code AndroidNativeBy} which matches all elements
+   * described by a compound selector. The syntax is a subset of CSS:
+   *
+   * <ul>
+   *   <li>A <em>simple selector</em> is an optional class name followed by
+   *   any number of attribute conditions in brackets. The class name may be
+   *   fully-qualified, such as {@code android.widget.TextView}, or simple,
+   *   such as {@code TextView}, and matches elements of that class or any
+   *   subclass. {@code *} matches any element.
+   *   <li>The attribute conditions are {@code [name='value']} (equals),
+   *   {@code [name*='value']} (contains), {@code [name^='value']} (starts
+   *   with), {@code [name$='value']} (ends with) and {@code [name]} (has a
+   *   value). The attributes are {@code id}, {@code text}, {@code displayed},
+   *   {@code enabled} and {@code selected}. An {@code id} compared with
+   *   {@code =} accepts the same values as {@link By#id(String)}; the other
+   *   operators compare against the name of the field in {@code R.id}.
+   *   <li>Simple selectors separated by whitespace match descendants, and
+   *   those separated by {@code >} match direct children.
+   * </ul>
+   *
+   * <p>For example, the following finds all the {@code TextView}s directly
+   * inside a {@code ListView} whose text contains {@code Mars}:
+   *
+   * <pre>AndroidNativeBy.selector(
+   *     "android.widget.ListView > TextView[text*='Mars']")</pre>
+   *
+   * <p>The whole selector is evaluated by the server in a single search,
+   * rather than one search per level as with nested {@code findElement}
+   * calls.
+   */
+  public static AndroidNativeBy selector(final String selector) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(selector),
+        "selector argument must be a non-empty, non-null String.");
+
+    return new AndroidNativeBy() {
+      @Override
+      public WebElement findElement(SearchContext context) {
+        return ((FindsBySelector) context).findElementBySelector(selector);
+      }
+
+      @Override
+      public List<WebElement> findElements(SearchContext context) {
+        return ((FindsBySelector) context).findElementsBySelector(selector);
+      }
+
+      @Override
+      public String toString() {
+        return "AndroidNativeBy.selector: " + selector;
+      }
+    };
+  }
 }
@@ -27,4 +27,13 @@ import org.openqa.selenium.remote.DriverCommand;
 public interface AndroidNativeDriverCommand extends DriverCommand {
   String SEND_KEYS_TO_SESSION = "sendKeysToElement";
   String SEND_MODIFIER_KEY_TO_SESSION = "sendModifierKeyToActiveElement";
+  String FIND_ELEMENTS_IN_BATCH = "findElementsInBatch";
+  String GET_HIERARCHY_DIFF = "getHierarchyDiff";
+  String WAIT_FOR_QUIESCENCE = "waitForQuiescence";
+  String WAIT_FOR_ELEMENTS = "waitForElements";
+  String GET_METRICS = "getMetrics";
+  String PERFORM_ACTIONS = "performActions";
+  String START_INPUT_RECORDING = "startInputRecording";
+  String STOP_INPUT_RECORDING = "stopInputRecording";
+  String REPLAY_INPUT = "replayInput";
 }
@@ -0,0 +1,42 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface for drivers which can resolve many {@link Locator}s in one
+ * operation.
+ */
+public interface FindsInBatch {
+  /**
+   * Finds the elements matching each of the given locators, searching the
+   * element hierarchy only once. This waits for every locator to match at
+   * least one element, for as long as a single find would wait.
+   *
+   * @return a map from each of the locators to the elements it matched, in
+   *         the order the locators were given. Locators which matched nothing
+   *         before the wait timed out are mapped to an empty list.
+   * @throws org.openqa.selenium.WebDriverException if the same locator is
+   *         given more than once
+   */
+  Map<Locator, List<WebElement>> findElementsInBatch(List<Locator> locators);
+}
@@ -0,0 +1,89 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+/**
+ * The keys of the JSON objects exchanged by the hierarchy diff command. The
+ * client sends the last version it has seen under {@link #SINCE}, or zero if
+ * it has not seen any. The server replies with an object containing:
+ *
+ * <ul>
+ *   <li>{@link #EPOCH}: a token which is different for each instance of the
+ *   server's differ, such as after a restart of the server or in a new
+ *   session. Versions are only comparable within one epoch, so a client
+ *   which sees the epoch change must discard what it had and ask for the
+ *   whole hierarchy.
+ *   <li>{@link #VERSION}: the version of the current hierarchy
+ *   <li>{@link #FULL}: {@code true} if the requested version was unknown to
+ *   the server, in which case every node is listed in {@link #ADDED} and the
+ *   client must discard what it had
+ *   <li>{@link #ADDED} and {@link #CHANGED}: lists of nodes, each with its full
+ *   current state
+ *   <li>{@link #REMOVED}: a list of the IDs of nodes which no longer exist
+ * </ul>
+ *
+ * <p>Each node is an object with its {@link #NODE_ID}, which stays the same
+ * for as long as the element exists, and the optional keys below it. Keys of
+ * attributes the element does not have are left out.
+ */
+public final class HierarchyDiffKeys {
+  public static final String SINCE = "since";
+
+  public static final String EPOCH = "epoch";
+  public static final String VERSION = "version";
+  public static final String FULL = "full";
+  public static final String ADDED = "added";
+  public static final String CHANGED = "changed";
+  public static final String REMOVED = "removed";
+
+  public static final String NODE_ID = "node";
+
+  /**
+   * The ID of the parent node. Left out for the root of each window.
+   */
+  public static final String PARENT_ID = "parent";
+
+  /**
+   * The position of the node among the children of its parent, or among the
+   * windows for a root.
+   */
+  public static final String INDEX = "index";
+
+  public static final String CLASS = "class";
+
+  /**
+   * The symbolic Android ID, such as {@code id/button}, or {@code #} followed
+   * by the number if it has no name.
+   */
+  public static final String ANDROID_ID = "id";
+
+  public static final String LITERAL_ID = "literalId";
+  public static final String TEXT = "text";
+
+  /**
+   * The rectangle occupied by the node, as a list of left, top, right and
+   * bottom.
+   */
+  public static final String BOUNDS = "bounds";
+
+  public static final String DISPLAYED = "displayed";
+  public static final String ENABLED = "enabled";
+  public static final String SELECTED = "selected";
+
+  private HierarchyDiffKeys() {}
+}
@@ -0,0 +1,382 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * One step of an action sequence performed by {@link PerformsActions}. Like a
+ * {@link Locator}, an {@code InputAction} can be sent to the server as data,
+ * so that a whole chain of touch and key actions is performed on the device
+ * in one request, without network round trips between the steps.
+ *
+ * <p>The touch actions which take an element act on its center. If the
+ * element is {@code null}, they act on the coordinates of the last touch
+ * action, as the methods of {@link Touch} do.
+ */
+public final class InputAction {
+  /**
+   * The kinds of actions, each with the name it has in the JSON protocol.
+   */
+  public enum Kind {
+    /** Taps the element. */
+    TAP("tap"),
+
+    /** Double taps the element. */
+    DOUBLE_TAP("doubleTap"),
+
+    /** Long clicks the element. */
+    LONG_CLICK("longClick"),
+
+    /** Touches down on the element. */
+    TOUCH_DOWN("touchDown"),
+
+    /** Touches up on the element. */
+    TOUCH_UP("touchUp"),
+
+    /** Moves the touch to the element, offset by {@code x} and {@code y}. */
+    TOUCH_MOVE("touchMove"),
+
+    /**
+     * Swipes from the element by {@code x} and {@code y}, taking
+     * {@code ms}.
+     */
+    SWIPE("swipe"),
+
+    /** Flings from the element by {@code x} and {@code y}. */
+    FLING("fling"),
+
+    /** Drags the element to the target, taking {@code ms}. */
+    DRAG("drag"),
+
+    /**
+     * Pinches around the element from a distance of {@code x} to a distance
+     * of {@code y}, taking {@code ms}.
+     */
+    PINCH("pinch"),
+
+    /** Presses the key {@code value}, after tapping the element if any. */
+    KEY_DOWN("keyDown"),
+
+    /** Releases the key {@code value}, after tapping the element if any. */
+    KEY_UP("keyUp"),
+
+    /** Types the keys {@code value}, after tapping the element if any. */
+    SEND_KEYS("sendKeys"),
+
+    /** Does nothing for {@code ms}. */
+    PAUSE("pause");
+
+    private final String name;
+
+    private Kind(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Returns the name of the kind used in the wire protocol.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the kind with the given wire protocol name.
+     *
+     * @throws IllegalArgumentException if there is no such kind
+     */
+    public static Kind forName(String name) {
+      Preconditions.checkNotNull(name);
+
+      for (Kind kind : values()) {
+        if (kind.name.equals(name)) {
+          return kind;
+        }
+      }
+
+      throw new IllegalArgumentException("Unknown action: " + name);
+    }
+  }
+
+  private static final String ACTION_KEY = "action";
+  private static final String ELEMENT_KEY = "element";
+  private static final String TARGET_KEY = "target";
+  private static final String X_KEY = "x";
+  private static final String Y_KEY = "y";
+  private static final String DURATION_KEY = "ms";
+  private static final String VALUE_KEY = "value";
+  private static final String ELEMENT_ID_KEY = "ELEMENT";
+
+  private final Kind kind;
+  @Nullable private final WebElement element;
+  @Nullable private final WebElement target;
+  private final int x;
+  private final int y;
+  private final long durationInMillis;
+  @Nullable private final String value;
+
+  private InputAction(Kind kind, @Nullable WebElement element,
+      @Nullable WebElement target, int x, int y, long durationInMillis,
+      @Nullable String value) {
+    this.kind = Preconditions.checkNotNull(kind);
+    this.element = element;
+    this.target = target;
+    this.x = x;
+    this.y = y;
+    this.durationInMillis = durationInMillis;
+    this.value = value;
+  }
+
+  private static InputAction on(Kind kind, @Nullable WebElement element) {
+    return new InputAction(kind, element, null, 0, 0, 0, null);
+  }
+
+  public static InputAction tap(@Nullable WebElement element) {
+    return on(Kind.TAP, element);
+  }
+
+  public static InputAction doubleTap(@Nullable WebElement element) {
+    return on(Kind.DOUBLE_TAP, element);
+  }
+
+  public static InputAction longClick(@Nullable WebElement element) {
+    return on(Kind.LONG_CLICK, element);
+  }
+
+  public static InputAction touchDown(@Nullable WebElement element) {
+    return on(Kind.TOUCH_DOWN, element);
+  }
+
+  public static InputAction touchUp(@Nullable WebElement element) {
+    return on(Kind.TOUCH_UP, element);
+  }
+
+  public static InputAction touchMove(
+      @Nullable WebElement element, int xOffset, int yOffset) {
+    return new InputAction(
+        Kind.TOUCH_MOVE, element, null, xOffset, yOffset, 0, null);
+  }
+
+  public static InputAction swipe(@Nullable WebElement element, int xOffset,
+      int yOffset, long durationInMillis) {
+    return new InputAction(Kind.SWIPE, element, null, xOffset, yOffset,
+        durationInMillis, null);
+  }
+
+  public static InputAction fling(
+      @Nullable WebElement element, int xOffset, int yOffset) {
+    return new InputAction(
+        Kind.FLING, element, null, xOffset, yOffset, 0, null);
+  }
+
+  public static InputAction drag(@Nullable WebElement element,
+      WebElement target, long durationInMillis) {
+    return new InputAction(Kind.DRAG, element,
+        Preconditions.checkNotNull(target), 0, 0, durationInMillis, null);
+  }
+
+  public static InputAction pinch(@Nullable WebElement element,
+      int startDistance, int endDistance, long durationInMillis) {
+    return new InputAction(Kind.PINCH, element, null, startDistance,
+        endDistance, durationInMillis, null);
+  }
+
+  public static InputAction keyDown(@Nullable WebElement element, char key) {
+    return new InputAction(
+        Kind.KEY_DOWN, element, null, 0, 0, 0, String.valueOf(key));
+  }
+
+  public static InputAction keyUp(@Nullable WebElement element, char key) {
+    return new InputAction(
+        Kind.KEY_UP, element, null, 0, 0, 0, String.valueOf(key));
+  }
+
+  public static InputAction sendKeys(
+      @Nullable WebElement element, CharSequence keys) {
+    return new InputAction(
+        Kind.SEND_KEYS, element, null, 0, 0, 0, keys.toString());
+  }
+
+  public static InputAction pause(long durationInMillis) {
+    return new InputAction(
+        Kind.PAUSE, null, null, 0, 0, durationInMillis, null);
+  }
+
+  /**
+   * Reads an {@code InputAction} from its JSON representation.
+   *
+   * @param json a map with an {@code "action"} key and the keys used by that
+   *        kind of action
+   * @param elementsById looks up the element with a given ID, returning
+   *        {@code null} if there is no such element
+   * @throws IllegalArgumentException if the action is unknown, a key it
+   *         needs is missing or has the wrong type, or an element it refers
+   *         to is unknown
+   */
+  public static InputAction fromJson(
+      Map<?, ?> json, Function<String, WebElement> elementsById) {
+    Object action = json.get(ACTION_KEY);
+    Preconditions.checkArgument(action instanceof String,
+        "An action must have a string value for 'action': %s", json);
+    Kind kind = Kind.forName((String) action);
+
+    Object value = json.get(VALUE_KEY);
+    Preconditions.checkArgument((value == null) || (value instanceof String),
+        "The 'value' of an action must be a string: %s", json);
+    Preconditions.checkArgument((value != null)
+        || ((kind != Kind.KEY_DOWN) && (kind != Kind.KEY_UP)
+            && (kind != Kind.SEND_KEYS)),
+        "The '%s' action needs a 'value': %s", kind.name, json);
+    Preconditions.checkArgument(
+        ((kind != Kind.KEY_DOWN) && (kind != Kind.KEY_UP))
+            || (((String) value).length() == 1),
+        "The 'value' of a '%s' action must be one key: %s", kind.name, json);
+
+    WebElement target = elementOf(json, TARGET_KEY, elementsById);
+    Preconditions.checkArgument((target != null) || (kind != Kind.DRAG),
+        "The '%s' action needs a 'target': %s", kind.name, json);
+
+    return new InputAction(kind, elementOf(json, ELEMENT_KEY, elementsById),
+        target, (int) numberOf(json, X_KEY), (int) numberOf(json, Y_KEY),
+        numberOf(json, DURATION_KEY), (String) value);
+  }
+
+  @Nullable
+  private static WebElement elementOf(Map<?, ?> json, String key,
+      Function<String, WebElement> elementsById) {
+    Object reference = json.get(key);
+    if (reference == null) {
+      return null;
+    }
+
+    Preconditions.checkArgument(reference instanceof Map<?, ?>,
+        "The '%s' of an action must be an element: %s", key, json);
+    Object id = ((Map<?, ?>) reference).get(ELEMENT_ID_KEY);
+    Preconditions.checkArgument(id instanceof String,
+        "The '%s' of an action must be an element: %s", key, json);
+    WebElement element = elementsById.apply((String) id);
+    Preconditions.checkArgument(element != null,
+        "The '%s' of an action is not a known element: %s", key, json);
+    return element;
+  }
+
+  private static long numberOf(Map<?, ?> json, String key) {
+    Object number = json.get(key);
+    if (number == null) {
+      return 0;
+    }
+
+    Preconditions.checkArgument(number instanceof Number,
+        "The '%s' of an action must be a number: %s", key, json);
+    return ((Number) number).longValue();
+  }
+
+  /**
+   * Returns the JSON representation of this {@code InputAction}. Elements are
+   * written as objects with an {@code "ELEMENT"} key, as in the other
+   * commands of the JSON protocol.
+   *
+   * @param idsOfElements returns the ID of a given element
+   */
+  public Map<String, Object> toJson(
+      Function<WebElement, String> idsOfElements) {
+    Map<String, Object> json = Maps.newLinkedHashMap();
+    json.put(ACTION_KEY, kind.name);
+    if (element != null) {
+      json.put(ELEMENT_KEY,
+          ImmutableMap.of(ELEMENT_ID_KEY, idsOfElements.apply(element)));
+    }
+    if (target != null) {
+      json.put(TARGET_KEY,
+          ImmutableMap.of(ELEMENT_ID_KEY, idsOfElements.apply(target)));
+    }
+    if ((x != 0) || (y != 0)) {
+      json.put(X_KEY, x);
+      json.put(Y_KEY, y);
+    }
+    if (durationInMillis != 0) {
+      json.put(DURATION_KEY, durationInMillis);
+    }
+    if (value != null) {
+      json.put(VALUE_KEY, value);
+    }
+    return json;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  @Nullable
+  public WebElement getElement() {
+    return element;
+  }
+
+  /**
+   * Returns the element at the end of a {@link Kind#DRAG}, or {@code null}
+   * for the other kinds.
+   */
+  @Nullable
+  public WebElement getTarget() {
+    return target;
+  }
+
+  /**
+   * Returns the x offset, or the start distance of a {@link Kind#PINCH}.
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Returns the y offset, or the end distance of a {@link Kind#PINCH}.
+   */
+  public int getY() {
+    return y;
+  }
+
+  public long getDurationInMillis() {
+    return durationInMillis;
+  }
+
+  /**
+   * Returns the keys of the key actions, or {@code null} for the other kinds.
+   */
+  @Nullable
+  public String getValue() {
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return kind.name + ((element == null) ? "" : " " + element)
+        + ((target == null) ? "" : " to " + target)
+        + (((x == 0) && (y == 0)) ? "" : String.format(" (%d, %d)", x, y))
+        + ((durationInMillis == 0) ? "" : " " + durationInMillis + " ms")
+        + ((value == null) ? "" : " '" + value + "'");
+  }
+}
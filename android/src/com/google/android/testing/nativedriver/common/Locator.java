@@ -0,0 +1,155 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * A search strategy and the value to search for, in the form in which they
+ * appear in the JSON protocol. Unlike {@link org.openqa.selenium.By}, a
+ * {@code Locator} can be sent to the server as data, which makes it possible
+ * to send many of them in one command. The following code finds the OK and
+ * Cancel buttons in a single request:
+ *
+ * <pre>driver.findElementsInBatch(Locator.text("OK"), Locator.text("Cancel"));
+ * </pre>
+ */
+public final class Locator {
+  /**
+   * The name of the find-by-id strategy as used in the JSON protocol.
+   */
+  public static final String USING_ID = "id";
+
+  /**
+   * The name of the find-by-class-name strategy as used in the JSON protocol.
+   */
+  public static final String USING_CLASS_NAME = "class name";
+
+  private static final String USING_KEY = "using";
+  private static final String VALUE_KEY = "value";
+
+  private final String using;
+  private final String value;
+
+  private Locator(String using, String value) {
+    this.using = Preconditions.checkNotNull(using);
+    this.value = Preconditions.checkNotNull(value);
+  }
+
+  /**
+   * Creates a {@code Locator} with the given strategy name and value.
+   */
+  public static Locator of(String using, String value) {
+    return new Locator(using, value);
+  }
+
+  /**
+   * Equivalent to {@link org.openqa.selenium.By#id(String)}.
+   */
+  public static Locator id(String id) {
+    return new Locator(USING_ID, id);
+  }
+
+  /**
+   * Equivalent to {@link org.openqa.selenium.By#className(String)}.
+   */
+  public static Locator className(String className) {
+    return new Locator(USING_CLASS_NAME, className);
+  }
+
+  /**
+   * Equivalent to {@link AndroidNativeBy#text(String)}.
+   */
+  public static Locator text(String text) {
+    return new Locator(FindsByText.USING_TEXT, text);
+  }
+
+  /**
+   * Equivalent to {@link AndroidNativeBy#partialText(String)}.
+   */
+  public static Locator partialText(String text) {
+    return new Locator(FindsByText.USING_PARTIALTEXT, text);
+  }
+
+  /**
+   * Equivalent to {@link AndroidNativeBy#selector(String)}.
+   */
+  public static Locator selector(String selector) {
+    return new Locator(FindsBySelector.USING_SELECTOR, selector);
+  }
+
+  /**
+   * Reads a {@code Locator} from its JSON representation.
+   *
+   * @param json a map containing {@code "using"} and {@code "value"} keys
+   * @throws IllegalArgumentException if either key is missing or not a
+   *         string
+   */
+  public static Locator fromJson(Map<?, ?> json) {
+    Object using = json.get(USING_KEY);
+    Object value = json.get(VALUE_KEY);
+
+    Preconditions.checkArgument(
+        (using instanceof String) && (value instanceof String),
+        "A locator must have string values for 'using' and 'value': %s",
+        json);
+
+    return new Locator((String) using, (String) value);
+  }
+
+  /**
+   * Returns the JSON representation of this {@code Locator}, which is a map
+   * with the same keys as the parameters of the find element command.
+   */
+  public Map<String, String> toJson() {
+    return ImmutableMap.of(USING_KEY, using, VALUE_KEY, value);
+  }
+
+  public String getUsing() {
+    return using;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Locator)) {
+      return false;
+    }
+
+    Locator otherLocator = (Locator) other;
+    return using.equals(otherLocator.using)
+        && value.equals(otherLocator.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(using, value);
+  }
+
+  @Override
+  public String toString() {
+    return "Locator." + using + ": " + value;
+  }
+}
@@ -0,0 +1,36 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+import java.util.List;
+
+/**
+ * Interface for drivers which can perform a sequence of touch and key actions
+ * on the device in a single request.
+ */
+public interface PerformsActions {
+  /**
+   * Performs the given actions in order. The actions are performed one after
+   * the other, with no delay between them other than the pauses they
+   * contain.
+   *
+   * @throws org.openqa.selenium.WebDriverException if an action fails, in
+   *         which case the actions after it are not performed
+   */
+  void performActions(List<InputAction> actions);
+}
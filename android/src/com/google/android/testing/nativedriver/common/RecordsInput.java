@@ -0,0 +1,78 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+/**
+ * Interface for drivers which can record the input events of the application
+ * under test to a log on the device, and replay such a log. A log is written
+ * as the events happen, so a recording can be as long as the storage of the
+ * device allows.
+ */
+public interface RecordsInput {
+  /**
+   * The source which records the events injected by the driver, such as the
+   * taps and keys of tests.
+   */
+  String SOURCE_INSTRUMENTATION = "instrumentation";
+
+  /**
+   * The source which records the events dispatched to the windows of the
+   * application's activities, including those of a person using the device.
+   */
+  String SOURCE_APPLICATION = "application";
+
+  /**
+   * The speed at which a log is replayed as fast as the application takes
+   * the events, without waiting between them.
+   */
+  double MAXIMUM_SPEED = 0;
+
+  /**
+   * Starts recording input events to a file on the device.
+   *
+   * @param devicePath the path of the log file. A relative path is relative
+   *        to the files directory of the application under test.
+   * @param source {@link #SOURCE_INSTRUMENTATION} or
+   *        {@link #SOURCE_APPLICATION}
+   * @throws org.openqa.selenium.WebDriverException if input is already being
+   *         recorded, or the file cannot be created
+   */
+  void startInputRecording(String devicePath, String source);
+
+  /**
+   * Stops recording input events and closes the log file.
+   *
+   * @return the number of events recorded
+   * @throws org.openqa.selenium.WebDriverException if input is not being
+   *         recorded, or the log could not be written
+   */
+  int stopInputRecording();
+
+  /**
+   * Injects the events of a log file on the device, with the same times
+   * between them as when they were recorded, divided by {@code speed}.
+   *
+   * @param devicePath the path of the log file, as given to
+   *        {@link #startInputRecording}
+   * @param speed how many times faster than recorded to replay the log, or
+   *        {@link #MAXIMUM_SPEED}
+   * @return the number of events injected
+   * @throws org.openqa.selenium.WebDriverException if the log cannot be read
+   */
+  int replayInput(String devicePath, double speed);
+}
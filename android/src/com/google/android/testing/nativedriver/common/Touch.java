@@ -89,13 +89,14 @@ public interface Touch {
    * coordinates.
    *
    * @param where base coordinates of destination to move to.
-   *        It cannot be {@code null}.
+   *        If {@code null}, the offset is from the last active coordinates.
    * @param xOffset x offset from the base coordinates
    * @param yOffset y offset from the base coordinates
    *
-   * @throws NullPointerException if {@code where} is {@code null}
+   * @throws IllegalStateException if there are no last active coordinates
+   *         and {@code where} is {@code null}
    */
-  void touchMove(Coordinates where, long xOffset, long yOffset);
+  void touchMove(@Nullable Coordinates where, long xOffset, long yOffset);
 
   /**
    * Performs a long click at the given coordinates. One of the typical usage
@@ -112,6 +113,79 @@ public interface Touch {
    */
   void longClick(@Nullable Coordinates where);
 
+  /**
+   * Touches down at the given coordinates, moves by the given offsets at an
+   * even speed over the given duration, and touches up once the move has
+   * stopped, so that the move does not turn into a fling. This is the usual
+   * way of scrolling a list by a known distance.
+   *
+   * @param where coordinates where the swipe starts. If {@code null}, the
+   *        swipe starts at the last active coordinates.
+   * @param xOffset the distance to move along the x axis
+   * @param yOffset the distance to move along the y axis
+   * @param durationInMillis the time taken by the move
+   *
+   * @throws IllegalStateException if there are no last active coordinates
+   *         and {@code where} is {@code null}, or if the touch state is
+   *         already down
+   */
+  void swipe(@Nullable Coordinates where, int xOffset, int yOffset,
+      long durationInMillis);
+
+  /**
+   * Touches down at the given coordinates, moves quickly by the given offsets
+   * and touches up while still moving, so that the move turns into a fling.
+   *
+   * @param where coordinates where the fling starts. If {@code null}, the
+   *        fling starts at the last active coordinates.
+   * @param xOffset the distance to move along the x axis before touching up
+   * @param yOffset the distance to move along the y axis before touching up
+   *
+   * @throws IllegalStateException if there are no last active coordinates
+   *         and {@code where} is {@code null}, or if the touch state is
+   *         already down
+   */
+  void fling(@Nullable Coordinates where, int xOffset, int yOffset);
+
+  /**
+   * Touches down at the given coordinates, holds until the touch becomes a
+   * long press, then moves to the destination over the given duration and
+   * touches up there. This is how an item is dragged and dropped.
+   *
+   * @param from coordinates where the drag starts. If {@code null}, the drag
+   *        starts at the last active coordinates.
+   * @param to coordinates where the drag ends. It cannot be {@code null}.
+   * @param durationInMillis the time taken by the move
+   *
+   * @throws NullPointerException if {@code to} is {@code null}
+   * @throws IllegalStateException if there are no last active coordinates
+   *         and {@code from} is {@code null}, or if the touch state is
+   *         already down
+   */
+  void drag(@Nullable Coordinates from, Coordinates to,
+      long durationInMillis);
+
+  /**
+   * Touches down with two pointers on either side of the given coordinates,
+   * and moves them along the x axis until they are the end distance apart.
+   * The pointers move closer together if the end distance is shorter than
+   * the start distance (pinching in), and further apart otherwise (pinching
+   * out).
+   *
+   * @param where coordinates of the point midway between the pointers. If
+   *        {@code null}, the last active coordinates are used.
+   * @param startDistance the distance between the pointers when they touch
+   *        down
+   * @param endDistance the distance between the pointers when they touch up
+   * @param durationInMillis the time taken by the move
+   *
+   * @throws IllegalStateException if there are no last active coordinates
+   *         and {@code where} is {@code null}, or if the touch state is
+   *         already down
+   */
+  void pinch(@Nullable Coordinates where, int startDistance, int endDistance,
+      long durationInMillis);
+
   // TODO(dxu): once the touch interaction interface is added into the
   // Selenium source tree, replace usages of this interface with the Selenium
   // interface.
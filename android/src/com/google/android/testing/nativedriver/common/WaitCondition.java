@@ -0,0 +1,99 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The conditions which {@link WaitsForElements} can wait for. Each condition
+ * is evaluated against the elements matching a {@link Locator}.
+ */
+public enum WaitCondition {
+  /**
+   * At least one element matches. The matching elements are returned.
+   */
+  PRESENT("present", false),
+
+  /**
+   * At least one matching element is displayed. The displayed elements are
+   * returned.
+   */
+  VISIBLE("visible", false),
+
+  /**
+   * At least one matching element is enabled. The enabled elements are
+   * returned.
+   */
+  ENABLED("enabled", false),
+
+  /**
+   * At least one matching element has text equal to the argument. Those
+   * elements are returned.
+   */
+  TEXT_EQUALS("textEquals", true),
+
+  /**
+   * At least as many elements as the argument, a decimal integer, match. The
+   * matching elements are returned.
+   */
+  COUNT_AT_LEAST("countAtLeast", true),
+
+  /**
+   * No element matches. An empty list is returned.
+   */
+  ABSENT("absent", false);
+
+  private final String name;
+  private final boolean takesArgument;
+
+  private WaitCondition(String name, boolean takesArgument) {
+    this.name = name;
+    this.takesArgument = takesArgument;
+  }
+
+  /**
+   * Returns the name of the condition used in the wire protocol.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns whether the condition requires an argument.
+   */
+  public boolean takesArgument() {
+    return takesArgument;
+  }
+
+  /**
+   * Returns the condition with the given wire protocol name.
+   *
+   * @throws IllegalArgumentException if there is no such condition
+   */
+  public static WaitCondition forName(String name) {
+    Preconditions.checkNotNull(name);
+
+    for (WaitCondition condition : values()) {
+      if (condition.name.equals(name)) {
+        return condition;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown wait condition: " + name);
+  }
+}
@@ -0,0 +1,45 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.common;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Interface for drivers which can wait for a {@link WaitCondition} on the
+ * device, checking it each time the UI changes rather than polling from the
+ * client.
+ */
+public interface WaitsForElements {
+  /**
+   * Waits until the elements matching {@code locator} satisfy
+   * {@code condition}.
+   *
+   * @param argument the argument of the condition, or {@code null} if it
+   *        does not take one
+   * @param timeoutInMillis the longest time to wait in milliseconds
+   * @return the elements described by the condition
+   * @throws org.openqa.selenium.WebDriverException if the condition is not
+   *         satisfied in time, or the argument is missing or invalid
+   */
+  List<WebElement> waitForElements(Locator locator, WaitCondition condition,
+      @Nullable String argument, long timeoutInMillis);
+}
@@ -17,11 +17,21 @@ limitations under the License.
 
 package com.google.android.testing.nativedriver.server;
 
+import com.google.android.testing.nativedriver.common.AndroidCapabilities;
+import com.google.android.testing.nativedriver.common.FindsInBatch;
 import com.google.android.testing.nativedriver.common.HasTouchScreen;
+import com.google.android.testing.nativedriver.common.InputAction;
+import com.google.android.testing.nativedriver.common.Locator;
+import com.google.android.testing.nativedriver.common.PerformsActions;
+import com.google.android.testing.nativedriver.common.RecordsInput;
 import com.google.android.testing.nativedriver.common.Touch;
+import com.google.android.testing.nativedriver.common.WaitCondition;
+import com.google.android.testing.nativedriver.common.WaitsForElements;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
 
 import android.app.Activity;
 import android.content.Intent;
@@ -33,6 +43,7 @@ import android.view.Surface;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.Cookie;
 import org.openqa.selenium.HasInputDevices;
 import org.openqa.selenium.Keyboard;
@@ -45,11 +56,21 @@ import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.interactions.ActionChainsGenerator;
 import org.openqa.selenium.interactions.DefaultActionChainsGenerator;
-
+import org.openqa.selenium.interactions.internal.Coordinates;
+import org.openqa.selenium.internal.Locatable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -64,9 +85,14 @@ import javax.annotation.Nullable;
  * @author Dezheng Xu
  */
 public class AndroidNativeDriver
-    implements WebDriver, Rotatable, HasTouchScreen, HasInputDevices {
+    implements WebDriver, Rotatable, HasTouchScreen, HasInputDevices,
+    FindsInBatch, WaitsForElements, PerformsActions, RecordsInput {
   private final ElementContext context;
   private SearchContext rootSearchContext;
+  private ElementSearchScope rootSearchScope;
+  private final PageSourceWriter pageSourceWriter;
+  private HierarchyDiffer hierarchyDiffer;
+  private QuiescenceMonitor quiescenceMonitor;
 
   /**
    * Allows configuration of this instance of the driver. Only
@@ -142,13 +168,17 @@ public class AndroidNativeDriver
   protected class AndroidNativeNavigation implements Navigation {
     @Override
     public void back() {
-      context.getInstrumentation().waitForIdleSync();
+      InputSynchronizer inputSynchronizer = context.getInputSynchronizer();
+      inputSynchronizer.beginCommand();
       try {
+        inputSynchronizer.beforeEvent();
         context.getInstrumentation().sendKeyDownUpSync(KeyEvent.KEYCODE_BACK);
       } catch (SecurityException exception) {
         throw new WebDriverException(
             "Pressing the Back button failed. Confirm that the destination "
             + "window is not part of a separate application.", exception);
+      } finally {
+        inputSynchronizer.endCommand();
       }
     }
 
@@ -177,6 +207,8 @@ public class AndroidNativeDriver
 
   public AndroidNativeDriver(ElementContext context) {
     this.context = context;
+    this.pageSourceWriter
+        = new PageSourceWriter(context.getElementFinder().getRClassReader());
     // We have to do this in the constructor because the RemoteWebDriver
     // framework expects the browser (test environment) to be in a clean state
     // after driver construction. If this behavior is a problem for your
@@ -190,14 +222,59 @@ public class AndroidNativeDriver
     this(ElementContext.withDefaults(ServerInstrumentation.getInstance()));
   }
 
+  /**
+   * Creates an instance configured by the capabilities requested by the
+   * client. See {@link AndroidCapabilities} for the supported capabilities.
+   */
+  public AndroidNativeDriver(Capabilities capabilities) {
+    this();
+    applyCapabilities(capabilities);
+  }
+
+  protected void applyCapabilities(Capabilities capabilities) {
+    if (capabilities.is(AndroidCapabilities.FAST_ABSENCE)) {
+      context.getElementFinder().setFastAbsenceMonitor(getQuiescenceMonitor());
+    }
+
+    Object traversalOrder
+        = capabilities.getCapability(AndroidCapabilities.TRAVERSAL_ORDER);
+    if (traversalOrder != null) {
+      try {
+        context.getElementFinder().setTraversalOrder(
+            TraversalOrder.forName(traversalOrder.toString()));
+      } catch (IllegalArgumentException exception) {
+        throw new WebDriverException(exception.getMessage(), exception);
+      }
+    }
+
+    Object inputSync
+        = capabilities.getCapability(AndroidCapabilities.INPUT_SYNC);
+    if (inputSync != null) {
+      try {
+        context.getInputSynchronizer().setPolicy(
+            InputSynchronizer.Policy.forName(inputSync.toString()));
+      } catch (IllegalArgumentException exception) {
+        throw new WebDriverException(exception.getMessage(), exception);
+      }
+    }
+  }
+
   protected AndroidWait getWait() {
     return context.getElementFinder().getWait();
   }
 
+  protected ElementSearchScope getRootSearchScope() {
+    if (rootSearchScope == null) {
+      rootSearchScope = new RootSearchScope(context);
+    }
+
+    return rootSearchScope;
+  }
+
   protected SearchContext getRootSearchContext() {
     if (rootSearchContext == null) {
       rootSearchContext = context.getElementFinder()
-          .getSearchContext(new RootSearchScope(context));
+          .getSearchContext(getRootSearchScope());
     }
 
     return rootSearchContext;
@@ -228,6 +305,21 @@ public class AndroidNativeDriver
     return getRootSearchContext().findElements(by);
   }
 
+  @Override
+  public Map<Locator, List<WebElement>> findElementsInBatch(
+      List<Locator> locators) {
+    return context.getElementFinder()
+        .findElementsInBatch(getRootSearchScope(), locators);
+  }
+
+  @Override
+  public List<WebElement> waitForElements(Locator locator,
+      WaitCondition condition, @Nullable String argument,
+      long timeoutInMillis) {
+    return context.getElementFinder().waitForElements(getRootSearchScope(),
+        locator, condition, argument, timeoutInMillis);
+  }
+
   /**
    * Takes a string that looks like a URL and performs an operation based on the
    * contents of the URL. Currently only starting activities is supported.
@@ -295,9 +387,199 @@ public class AndroidNativeDriver
     return "and-activity://" + activity.getLocalClassName() + "?id=" + id;
   }
 
+  /**
+   * Returns an XML description of every element in every window. See
+   * {@link PageSourceWriter} for the format.
+   */
   @Override
   public String getPageSource() {
-    throw new UnsupportedOperationException();
+    StringWriter source = new StringWriter();
+
+    try {
+      writePageSource(takeRootSnapshot(), source);
+    } catch (IOException exception) {
+      // This should never happen because source is an in-memory writer.
+      throw new WebDriverException(exception);
+    }
+
+    return source.toString();
+  }
+
+  /**
+   * Takes a snapshot of every element in every window.
+   */
+  public HierarchySnapshot takeRootSnapshot() {
+    return context.getElementFinder().getSnapshotter()
+        .capture(getRootSearchScope());
+  }
+
+  /**
+   * Writes the page source of the given snapshot to {@code out}, one element
+   * at a time.
+   */
+  public void writePageSource(HierarchySnapshot snapshot, Writer out)
+      throws IOException {
+    pageSourceWriter.write(snapshot, out);
+  }
+
+  /**
+   * Returns the differences between the current hierarchy of every window and
+   * the hierarchy at an earlier version. See {@link HierarchyDiffer}.
+   *
+   * @param since a version returned by an earlier call, or zero to get the
+   *        whole hierarchy
+   */
+  public synchronized Map<String, Object> getHierarchyDiff(long since) {
+    if (hierarchyDiffer == null) {
+      hierarchyDiffer
+          = new HierarchyDiffer(context.getElementFinder().getRClassReader());
+    }
+
+    return hierarchyDiffer.diff(takeRootSnapshot(), since);
+  }
+
+  /**
+   * Returns the performance counters of the server: the latency histograms
+   * of the operations run on the main application thread, the search
+   * statistics and the reports of the main thread watchdog.
+   */
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = Maps.newLinkedHashMap();
+    ServerInstrumentation instrumentation = ServerInstrumentation.getInstance();
+
+    if (instrumentation != null) {
+      metrics.put("runner", instrumentation.getRunnerMetrics().toJson());
+    }
+
+    SearchStatistics statistics = context.getElementFinder().getStatistics();
+    Map<String, Object> search = Maps.newLinkedHashMap();
+    search.put("queryCount", statistics.getQueryCount());
+    search.put("nodesCaptured", statistics.getNodesCaptured());
+    search.put("nodesVisited", statistics.getNodesVisited());
+    search.put("maxQueryNodesVisited", statistics.getMaxQueryNodesVisited());
+    metrics.put("search", search);
+
+    if (instrumentation != null) {
+      metrics.put("watchdog",
+          instrumentation.getMainThreadWatchdog().getReports());
+    }
+
+    return metrics;
+  }
+
+  /**
+   * Waits until the UI is quiet, as defined by {@link QuiescenceMonitor}.
+   *
+   * @param timeoutInMillis the longest time to wait in milliseconds
+   * @throws org.openqa.selenium.support.ui.TimeoutException if the UI is not
+   *         quiet in time
+   */
+  public void waitForQuiescence(long timeoutInMillis) {
+    AndroidWait wait = new AndroidWait(context.getViewTreeMonitor());
+    wait.setTimeoutInMillis(timeoutInMillis);
+    wait.untilQuiet(getQuiescenceMonitor());
+  }
+
+  @Override
+  public void startInputRecording(String devicePath, String source) {
+    InputRecorder.Source recordedSource;
+    try {
+      recordedSource = InputRecorder.Source.forName(source);
+    } catch (IllegalArgumentException exception) {
+      throw new WebDriverException(exception.getMessage(), exception);
+    }
+
+    final InputRecorder recorder = getInputRecorder();
+    if (recorder.isRecording()) {
+      // Checked before opening the file, which may be the one being written.
+      throw new WebDriverException("Input is already being recorded.");
+    }
+
+    File file = resolveDeviceFile(devicePath);
+    try {
+      OutputStream out = new FileOutputStream(file);
+      try {
+        recorder.start(out, recordedSource);
+      } catch (RuntimeException exception) {
+        Closeables.closeQuietly(out);
+        throw exception;
+      }
+    } catch (IOException exception) {
+      throw new WebDriverException(
+          "Could not start recording input to " + file, exception);
+    }
+
+    if (recordedSource == InputRecorder.Source.APPLICATION) {
+      // Activities resumed from now on are attached by the instrumentation.
+      context.getOnMainSyncRunner().run(new Runnable() {
+        @Override
+        public void run() {
+          Activity activity = context.getActivities().current();
+          if (activity != null) {
+            recorder.attachTo(activity.getWindow());
+          }
+        }
+      });
+    }
+  }
+
+  @Override
+  public int stopInputRecording() {
+    try {
+      return getInputRecorder().stop();
+    } catch (IOException exception) {
+      throw new WebDriverException("Could not write input log.", exception);
+    }
+  }
+
+  @Override
+  public int replayInput(String devicePath, double speed) {
+    File file = resolveDeviceFile(devicePath);
+    try {
+      return InputReplayer.withDefaults(context.getInstrumentation(),
+          context.getInputSynchronizer())
+          .replay(new FileInputStream(file), speed);
+    } catch (IOException exception) {
+      throw new WebDriverException(
+          "Could not replay input log " + file, exception);
+    } catch (IllegalArgumentException exception) {
+      throw new WebDriverException(exception.getMessage(), exception);
+    }
+  }
+
+  private static InputRecorder getInputRecorder() {
+    ServerInstrumentation instrumentation = ServerInstrumentation.getInstance();
+    if (instrumentation == null) {
+      throw new WebDriverException(
+          "Input can only be recorded by the server instrumentation.");
+    }
+
+    return instrumentation.getInputRecorder();
+  }
+
+  /**
+   * Resolves a path given by a client against the files directory of the
+   * application under test.
+   */
+  private File resolveDeviceFile(String devicePath) {
+    File file = new File(devicePath);
+    if (file.isAbsolute()) {
+      return file;
+    }
+
+    return new File(
+        context.getInstrumentation().getTargetContext().getFilesDir(),
+        devicePath);
+  }
+
+  protected synchronized QuiescenceMonitor getQuiescenceMonitor() {
+    if (quiescenceMonitor == null) {
+      quiescenceMonitor = new QuiescenceMonitor(
+          context.getInstrumentation(), context.getOnMainSyncRunner(),
+          context.getViewTreeMonitor(), WindowListProviders.getDefault());
+    }
+
+    return quiescenceMonitor;
   }
 
   /**
@@ -353,6 +635,114 @@ public class AndroidNativeDriver
     return context.getTouch();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The touch actions are performed with the {@link Touch} of this driver
+   * and the key actions with its {@code Keyboard}, in the thread of the
+   * caller.
+   */
+  @Override
+  public void performActions(List<InputAction> actions) {
+    // The whole sequence is one input command, so that its steps only wait
+    // for the application as its input sync policy requires.
+    InputSynchronizer inputSynchronizer = context.getInputSynchronizer();
+    inputSynchronizer.beginCommand();
+    try {
+      for (InputAction action : actions) {
+        performAction(action);
+      }
+    } finally {
+      inputSynchronizer.endCommand();
+    }
+  }
+
+  private void performAction(InputAction action) {
+    Touch touch = getTouch();
+    Coordinates where = coordinatesOf(action.getElement());
+
+    switch (action.getKind()) {
+      case TAP:
+        touch.tap(where);
+        break;
+      case DOUBLE_TAP:
+        touch.doubleTap(where);
+        break;
+      case LONG_CLICK:
+        touch.longClick(where);
+        break;
+      case TOUCH_DOWN:
+        touch.touchDown(where);
+        break;
+      case TOUCH_UP:
+        touch.touchUp(where);
+        break;
+      case TOUCH_MOVE:
+        touch.touchMove(where, action.getX(), action.getY());
+        break;
+      case SWIPE:
+        touch.swipe(where, action.getX(), action.getY(),
+            action.getDurationInMillis());
+        break;
+      case FLING:
+        touch.fling(where, action.getX(), action.getY());
+        break;
+      case DRAG:
+        touch.drag(where, coordinatesOf(action.getTarget()),
+            action.getDurationInMillis());
+        break;
+      case PINCH:
+        touch.pinch(where, action.getX(), action.getY(),
+            action.getDurationInMillis());
+        break;
+      case KEY_DOWN:
+      case KEY_UP:
+        if (where != null) {
+          touch.tap(where);
+        }
+        context.getKeySender().sendKeyEvent(
+            (action.getKind() == InputAction.Kind.KEY_DOWN)
+                ? KeyEvent.ACTION_DOWN : KeyEvent.ACTION_UP,
+            action.getValue().charAt(0));
+        break;
+      case SEND_KEYS:
+        if (action.getElement() != null) {
+          action.getElement().sendKeys(action.getValue());
+        } else {
+          context.getKeySender().send(action.getValue());
+        }
+        break;
+      case PAUSE:
+        pause(action.getDurationInMillis());
+        break;
+      default:
+        throw new WebDriverException("Unsupported action: " + action);
+    }
+  }
+
+  @Nullable
+  private static Coordinates coordinatesOf(@Nullable WebElement element) {
+    if (element == null) {
+      return null;
+    }
+
+    if (!(element instanceof Locatable)) {
+      throw new WebDriverException(
+          "Element cannot be touched: " + element);
+    }
+
+    return ((Locatable) element).getCoordinates();
+  }
+
+  private static void pause(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(exception);
+    }
+  }
+
   @Override
   public ScreenOrientation getOrientation() {
     int orientation = context.getOnMainSyncRunner().run(doGetOrientation());
@@ -374,6 +764,7 @@ public class AndroidNativeDriver
       activityOrientation = ActivityInfo.SCREEN_ORIENTATION_PORTRAIT;
     }
     context.getOnMainSyncRunner().run(doRotate(activityOrientation));
+    context.getViewTreeMonitor().invalidate();
   }
 
   /**
@@ -22,12 +22,23 @@ import com.google.android.testing.nativedriver.server.handler.AndroidNativeFindC
 import com.google.android.testing.nativedriver.server.handler.AndroidNativeFindChildElements;
 import com.google.android.testing.nativedriver.server.handler.AndroidNativeFindElement;
 import com.google.android.testing.nativedriver.server.handler.AndroidNativeFindElements;
+import com.google.android.testing.nativedriver.server.handler.AndroidNativeFindElementsInBatch;
 import com.google.android.testing.nativedriver.server.handler.AndroidNativeSendKeys;
+import com.google.android.testing.nativedriver.server.handler.AndroidNativeWaitForElements;
 import com.google.android.testing.nativedriver.server.handler.Click;
 import com.google.android.testing.nativedriver.server.handler.DoubleTap;
+import com.google.android.testing.nativedriver.server.handler.GetHierarchyDiff;
+import com.google.android.testing.nativedriver.server.handler.GetMetrics;
+import com.google.android.testing.nativedriver.server.handler.GetPageSourceStream;
+import com.google.android.testing.nativedriver.server.handler.PerformActions;
+import com.google.android.testing.nativedriver.server.handler.ReplayInput;
+import com.google.android.testing.nativedriver.server.handler.StartInputRecording;
+import com.google.android.testing.nativedriver.server.handler.StopInputRecording;
+import com.google.android.testing.nativedriver.server.handler.StreamingResult;
 import com.google.android.testing.nativedriver.server.handler.TouchDown;
 import com.google.android.testing.nativedriver.server.handler.TouchMove;
 import com.google.android.testing.nativedriver.server.handler.TouchUp;
+import com.google.android.testing.nativedriver.server.handler.WaitForQuiescence;
 
 import org.openqa.selenium.remote.server.DefaultDriverSessions;
 import org.openqa.selenium.remote.server.DriverServlet;
@@ -69,6 +80,9 @@ public class AndroidNativeDriverServlet extends DriverServlet {
       addNewPostMapping(
           SESSION_PATH + "elements", AndroidNativeFindElements.class)
           .on(ResultType.SUCCESS, newJsonResult());
+      addNewPostMapping(SESSION_PATH + "elements/batch",
+          AndroidNativeFindElementsInBatch.class)
+          .on(ResultType.SUCCESS, newJsonResult());
       addNewPostMapping(SESSION_PATH + "element/:id/element",
           AndroidNativeFindChildElement.class)
           .on(ResultType.SUCCESS, newJsonResult());
@@ -76,6 +90,20 @@ public class AndroidNativeDriverServlet extends DriverServlet {
           AndroidNativeFindChildElements.class)
           .on(ResultType.SUCCESS, newJsonResult());
 
+      addNewGetMapping(SESSION_PATH + "source/stream",
+          GetPageSourceStream.class)
+          .on(ResultType.SUCCESS, newStreamingResult());
+      addNewPostMapping(SESSION_PATH + "hierarchy/diff",
+          GetHierarchyDiff.class)
+          .on(ResultType.SUCCESS, newJsonResult());
+      addNewPostMapping(SESSION_PATH + "quiescence", WaitForQuiescence.class)
+          .on(ResultType.SUCCESS, newEmptyResult());
+      addNewPostMapping(SESSION_PATH + "elements/wait",
+          AndroidNativeWaitForElements.class)
+          .on(ResultType.SUCCESS, newJsonResult());
+      addNewGetMapping(SESSION_PATH + "metrics", GetMetrics.class)
+          .on(ResultType.SUCCESS, newJsonResult());
+
       addNewPostMapping(SESSION_PATH + "element/:id/value",
           AndroidNativeSendKeys.class)
           .on(ResultType.SUCCESS, newEmptyResult());
@@ -90,6 +118,17 @@ public class AndroidNativeDriverServlet extends DriverServlet {
           .on(ResultType.SUCCESS, newEmptyResult());
       addNewPostMapping(SESSION_PATH + "buttonup", TouchUp.class)
           .on(ResultType.SUCCESS, newEmptyResult());
+      addNewPostMapping(SESSION_PATH + "actions", PerformActions.class)
+          .on(ResultType.SUCCESS, newEmptyResult());
+
+      addNewPostMapping(SESSION_PATH + "input/record",
+          StartInputRecording.class)
+          .on(ResultType.SUCCESS, newEmptyResult());
+      addNewPostMapping(SESSION_PATH + "input/record/stop",
+          StopInputRecording.class)
+          .on(ResultType.SUCCESS, newJsonResult());
+      addNewPostMapping(SESSION_PATH + "input/replay", ReplayInput.class)
+          .on(ResultType.SUCCESS, newJsonResult());
     } catch (Exception exception) {
       throw new ServletException(exception);
     }
@@ -102,4 +141,8 @@ public class AndroidNativeDriverServlet extends DriverServlet {
   protected EmptyResult newEmptyResult() {
     return new EmptyResult();
   }
+
+  protected StreamingResult newStreamingResult() {
+    return new StreamingResult();
+  }
 }
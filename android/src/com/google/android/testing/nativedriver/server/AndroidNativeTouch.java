@@ -19,6 +19,7 @@ package com.google.android.testing.nativedriver.server;
 
 import com.google.android.testing.nativedriver.common.Touch;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 import android.app.Instrumentation;
 import android.view.MotionEvent;
@@ -51,98 +52,276 @@ public class AndroidNativeTouch implements Touch {
   protected static final long DURATION_BETWEEN_DOUBLE_TAP
       = (long) (ViewConfiguration.getDoubleTapTimeout() / 1.5f);
 
+  // The time in milliseconds a swipe, drag or pinch stays still at its end
+  // before touching up, so that it does not turn into a fling. This is longer
+  // than the 200 ms of history the velocity tracker looks at.
+  protected static final long SWIPE_REST_TIME = 250;
+
+  // The time in milliseconds taken by the move of a fling. The velocity of a
+  // fling of the shortest useful distance is still well above the minimum
+  // fling velocity.
+  protected static final long FLING_MOVE_TIME = 40;
+
   private static final long UNDEFINED_TIME = Long.MIN_VALUE;
 
   private final Instrumentation instrumentation;
+  private final InputSynchronizer inputSynchronizer;
   private final Clock clock;
   private Coordinates currentActiveCoordinates;
 
+  // Receives the location of the coordinates being touched. Only accessed in
+  // synchronized methods.
+  private final int[] location = new int[2];
+
   // We are only accessing downTime in synchronized blocks
   private long downTime = UNDEFINED_TIME;
 
-  public AndroidNativeTouch(Clock clock, Instrumentation instrumentation) {
+  public AndroidNativeTouch(Clock clock, Instrumentation instrumentation,
+      InputSynchronizer inputSynchronizer) {
     this.clock = clock;
     this.instrumentation = instrumentation;
+    this.inputSynchronizer = inputSynchronizer;
+  }
+
+  public AndroidNativeTouch(Clock clock, Instrumentation instrumentation) {
+    this(clock, instrumentation, new InputSynchronizer(instrumentation));
   }
 
   public static AndroidNativeTouch withDefaults(
       Instrumentation instrumentation) {
+    return withDefaults(
+        instrumentation, new InputSynchronizer(instrumentation));
+  }
+
+  public static AndroidNativeTouch withDefaults(
+      Instrumentation instrumentation, InputSynchronizer inputSynchronizer) {
     Clock clock = new AndroidSystemClock();
-    return new AndroidNativeTouch(clock, instrumentation);
+    return new AndroidNativeTouch(clock, instrumentation, inputSynchronizer);
   }
 
   @Override
   public synchronized void tap(@Nullable Coordinates where) {
-    if (!isTouchStateReleased()) {
-      throw new IllegalStateException(
-          "Attempt to tap when touch state is already down");
+    inputSynchronizer.beginCommand();
+    try {
+      if (!isTouchStateReleased()) {
+        throw new IllegalStateException(
+            "Attempt to tap when touch state is already down");
+      }
+      updateActiveCoordinates(where);
+      locate(currentActiveCoordinates);
+      tap(location[0], location[1]);
+    } finally {
+      inputSynchronizer.endCommand();
     }
-    updateActiveCoordinates(where);
-    Point point = currentActiveCoordinates.getLocationOnScreen();
-    tap(point.getX(), point.getY());
   }
 
   @Override
   public synchronized void doubleTap(@Nullable Coordinates where) {
-    if (!isTouchStateReleased()) {
-      throw new IllegalStateException(
-          "Attempt to double tap when touch state is already down");
+    inputSynchronizer.beginCommand();
+    try {
+      if (!isTouchStateReleased()) {
+        throw new IllegalStateException(
+            "Attempt to double tap when touch state is already down");
+      }
+      updateActiveCoordinates(where);
+      locate(currentActiveCoordinates);
+      doubleTap(location[0], location[1]);
+    } finally {
+      inputSynchronizer.endCommand();
     }
-    updateActiveCoordinates(where);
-    Point point = currentActiveCoordinates.getLocationOnScreen();
-    doubleTap(point.getX(), point.getY());
   }
 
   @Override
   public synchronized void touchDown(@Nullable Coordinates where) {
-    if (!isTouchStateReleased()) {
-      throw new IllegalStateException(
-          "Attempt to touch down when touch state is already down");
+    inputSynchronizer.beginCommand();
+    try {
+      if (!isTouchStateReleased()) {
+        throw new IllegalStateException(
+            "Attempt to touch down when touch state is already down");
+      }
+      updateActiveCoordinates(where);
+      locate(currentActiveCoordinates);
+      touchDown(location[0], location[1]);
+    } finally {
+      inputSynchronizer.endCommand();
     }
-    updateActiveCoordinates(where);
-    Point point = currentActiveCoordinates.getLocationOnScreen();
-    touchDown(point.getX(), point.getY());
   }
 
   @Override
   public synchronized void touchUp(@Nullable Coordinates where) {
-    if (isTouchStateReleased()) {
-      throw new IllegalStateException(
-          "Attempt to release touch when touch is already released");
+    inputSynchronizer.beginCommand();
+    try {
+      if (isTouchStateReleased()) {
+        throw new IllegalStateException(
+            "Attempt to release touch when touch is already released");
+      }
+      updateActiveCoordinates(where);
+      locate(currentActiveCoordinates);
+      touchUp(location[0], location[1]);
+    } finally {
+      inputSynchronizer.endCommand();
     }
-    updateActiveCoordinates(where);
-    Point point = currentActiveCoordinates.getLocationOnScreen();
-    touchUp(point.getX(), point.getY());
   }
 
   @Override
   public synchronized void touchMove(Coordinates where) {
-    Preconditions.checkNotNull(where);
-    updateActiveCoordinates(where);
-    if (!isTouchStateReleased()) {
-      Point point = where.getLocationOnScreen();
-      touchMove(point.getX(), point.getY());
+    inputSynchronizer.beginCommand();
+    try {
+      Preconditions.checkNotNull(where);
+      updateActiveCoordinates(where);
+      if (!isTouchStateReleased()) {
+        locate(where);
+        touchMove(location[0], location[1]);
+      }
+    } finally {
+      inputSynchronizer.endCommand();
     }
   }
 
   @Override
   public synchronized void touchMove(
-      Coordinates where, long xOffset, long yOffset) {
-    // Even Mouse.mouseMove(Coordinates where, long xOffset, long yOffset) is
-    // not supported yet in current WebDriver implementation.
-    throw new UnsupportedOperationException(
-        "Moving to arbitrary (x, y) coordinates not supported.");
+      @Nullable Coordinates where, long xOffset, long yOffset) {
+    inputSynchronizer.beginCommand();
+    try {
+      updateActiveCoordinates(where);
+      if (!isTouchStateReleased()) {
+        locate(currentActiveCoordinates);
+        touchMove((int) (location[0] + xOffset), (int) (location[1] + yOffset));
+      }
+    } finally {
+      inputSynchronizer.endCommand();
+    }
   }
 
   @Override
   public synchronized void longClick(Coordinates where) {
+    inputSynchronizer.beginCommand();
+    try {
+      if (!isTouchStateReleased()) {
+        throw new IllegalStateException(
+            "Attempt to longclick when touch state is already down");
+      }
+      updateActiveCoordinates(where);
+      locate(currentActiveCoordinates);
+      longClick(location[0], location[1]);
+    } finally {
+      inputSynchronizer.endCommand();
+    }
+  }
+
+  @Override
+  public synchronized void swipe(@Nullable Coordinates where, int xOffset,
+      int yOffset, long durationInMillis) {
+    inputSynchronizer.beginCommand();
+    try {
+      startGesture(where, "swipe");
+      performGesture(GesturePath.of(0, durationInMillis, SWIPE_REST_TIME,
+          location[0], location[1],
+          location[0] + xOffset, location[1] + yOffset));
+    } finally {
+      inputSynchronizer.endCommand();
+    }
+  }
+
+  @Override
+  public synchronized void fling(
+      @Nullable Coordinates where, int xOffset, int yOffset) {
+    inputSynchronizer.beginCommand();
+    try {
+      startGesture(where, "fling");
+      performGesture(GesturePath.of(0, FLING_MOVE_TIME, 0,
+          location[0], location[1],
+          location[0] + xOffset, location[1] + yOffset));
+    } finally {
+      inputSynchronizer.endCommand();
+    }
+  }
+
+  @Override
+  public synchronized void drag(@Nullable Coordinates from, Coordinates to,
+      long durationInMillis) {
+    inputSynchronizer.beginCommand();
+    try {
+      Preconditions.checkNotNull(to);
+      startGesture(from, "drag");
+      int startX = location[0];
+      int startY = location[1];
+      locate(to);
+      performGesture(GesturePath.of(DURATION_OF_LONG_PRESS, durationInMillis,
+          SWIPE_REST_TIME, startX, startY, location[0], location[1]));
+      currentActiveCoordinates = to;
+    } finally {
+      inputSynchronizer.endCommand();
+    }
+  }
+
+  @Override
+  public synchronized void pinch(@Nullable Coordinates where,
+      int startDistance, int endDistance, long durationInMillis) {
+    inputSynchronizer.beginCommand();
+    try {
+      startGesture(where, "pinch");
+      int x = location[0];
+      int y = location[1];
+      int startHalf = startDistance / 2;
+      int endHalf = endDistance / 2;
+      performGesture(new GesturePath(0, durationInMillis, SWIPE_REST_TIME,
+          ImmutableList.of(
+              new GesturePath.Stroke(x - startHalf, y, x - endHalf, y),
+              new GesturePath.Stroke(x + startHalf, y, x + endHalf, y))));
+    } finally {
+      inputSynchronizer.endCommand();
+    }
+  }
+
+  /**
+   * Checks that a gesture can start and writes the point where it starts
+   * into {@code location}.
+   */
+  private void startGesture(@Nullable Coordinates where, String gesture) {
     if (!isTouchStateReleased()) {
       throw new IllegalStateException(
-          "Attempt to longclick when touch state is already down");
+          "Attempt to " + gesture + " when touch state is already down");
     }
     updateActiveCoordinates(where);
-    Point point = currentActiveCoordinates.getLocationOnScreen();
-    longClick(point.getX(), point.getY());
+    locate(currentActiveCoordinates);
+  }
+
+  /**
+   * Writes the location on the screen of the given coordinates into
+   * {@code location}. Coordinates of views are read without allocating.
+   */
+  private void locate(Coordinates coordinates) {
+    if (coordinates instanceof ScreenLocatable) {
+      ((ScreenLocatable) coordinates).getLocationOnScreen(location);
+    } else {
+      Point point = coordinates.getLocationOnScreen();
+      location[0] = point.getX();
+      location[1] = point.getY();
+    }
+  }
+
+  /**
+   * Injects the events of a gesture, each at its own event time, as part of a
+   * command of the {@code InputSynchronizer}. The gesture is treated as one
+   * event by the synchronizer, so that the time between samples is not
+   * stretched by the work each sample causes.
+   */
+  protected void performGesture(GesturePath path) {
+    inputSynchronizer.beforeEvent();
+
+    GesturePath.Events events = path.events(clock.now());
+    while (events.hasNext()) {
+      sleepUntil(events.nextEventTime());
+      injectAndRecycle(events.obtainNext());
+    }
+  }
+
+  private void sleepUntil(long time) {
+    long delay = time - clock.now();
+    if (delay > 0) {
+      sleep(delay);
+    }
   }
 
   protected void touchDown(int x, int y) {
@@ -195,9 +374,25 @@ public class AndroidNativeTouch implements Touch {
     }
   }
 
+  /**
+   * Waits for the application to be idle if the {@code InputSynchronizer}
+   * says so, then injects the event and recycles it.
+   */
   protected void sendMotionEvent(MotionEvent motionEvent) {
-    instrumentation.waitForIdleSync();
-    instrumentation.sendPointerSync(motionEvent);
+    inputSynchronizer.beforeEvent();
+    injectAndRecycle(motionEvent);
+  }
+
+  /**
+   * Injects the event and returns it to the {@code MotionEvent} pool, so
+   * that the next event obtained reuses it instead of being allocated.
+   */
+  private void injectAndRecycle(MotionEvent motionEvent) {
+    try {
+      instrumentation.sendPointerSync(motionEvent);
+    } finally {
+      motionEvent.recycle();
+    }
   }
 
   protected boolean isTouchStateReleased() {
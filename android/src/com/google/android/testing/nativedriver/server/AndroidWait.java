@@ -28,10 +28,19 @@ import org.openqa.selenium.support.ui.Clock;
 import org.openqa.selenium.support.ui.TimeoutException;
 import org.openqa.selenium.support.ui.Wait;
 
+import javax.annotation.Nullable;
+
 /**
  * An implementation of the Wait interface that makes use of Android Native
  * WebDriver.
  *
+ * <p>By default the condition is checked every 100 ms. When constructed with
+ * a {@link ViewTreeMonitor}, the wait instead parks after each failed check
+ * until the monitor reports a change to the UI, so a condition which becomes
+ * true just after a check is noticed at the next layout or draw rather than
+ * at the next poll. The sleep interval is then only the longest time to park,
+ * which bounds the delay for changes the monitor does not see.
+ *
  * @author Tomohiro Kaizu
  */
 public class AndroidWait implements Wait<Void> {
@@ -40,6 +49,7 @@ public class AndroidWait implements Wait<Void> {
 
   private final Clock clock;
   private final long sleepIntervalInMillis;
+  @Nullable private final ViewTreeMonitor monitor;
 
   private long timeoutInMillis;
 
@@ -51,6 +61,16 @@ public class AndroidWait implements Wait<Void> {
     this(new AndroidSystemClock(), DEFAULT_SLEEP_INTERVAL, DEFAULT_TIMEOUT);
   }
 
+  /**
+   * Constructs an instance which wakes up when the given monitor reports a
+   * change to the UI, parking for at most 100 ms at a time, with a timeout of
+   * 1 second.
+   */
+  public AndroidWait(ViewTreeMonitor monitor) {
+    this(new AndroidSystemClock(), DEFAULT_SLEEP_INTERVAL, DEFAULT_TIMEOUT,
+        monitor);
+  }
+
   /**
    * @param clock clock to use when measuring the timeout
    * @param sleepIntervalInMillis amount of time to sleep between attempts in
@@ -59,9 +79,22 @@ public class AndroidWait implements Wait<Void> {
    */
   protected AndroidWait(Clock clock, long sleepIntervalInMillis,
         long timeoutInMillis) {
+    this(clock, sleepIntervalInMillis, timeoutInMillis, null);
+  }
+
+  /**
+   * @param clock clock to use when measuring the timeout
+   * @param sleepIntervalInMillis the longest time to park between attempts in
+   *     milliseconds, or the time to sleep if {@code monitor} is {@code null}
+   * @param timeoutInMillis timeout in milliseconds
+   * @param monitor monitor whose changes end a park, or {@code null} to poll
+   */
+  protected AndroidWait(Clock clock, long sleepIntervalInMillis,
+        long timeoutInMillis, @Nullable ViewTreeMonitor monitor) {
     this.clock = clock;
     this.sleepIntervalInMillis = sleepIntervalInMillis;
     this.timeoutInMillis = timeoutInMillis;
+    this.monitor = monitor;
   }
 
   @Override
@@ -70,6 +103,10 @@ public class AndroidWait implements Wait<Void> {
     NotFoundException lastException = null;
 
     while (clock.isNowBefore(end)) {
+      // Read before the attempt, so that a change made while the condition
+      // is being checked ends the park right away.
+      long version = (monitor == null) ? 0 : monitor.getVersion();
+
       try {
         T value = isTrue.apply(null);
 
@@ -81,7 +118,12 @@ public class AndroidWait implements Wait<Void> {
         // rethrow if it the element never appears.
         lastException = exception;
       }
-      sleep();
+
+      if (monitor == null) {
+        sleep();
+      } else {
+        awaitChange(version, end);
+      }
     }
 
     throw new TimeoutException(String.format("Timed out after %d seconds",
@@ -100,6 +142,41 @@ public class AndroidWait implements Wait<Void> {
     }
   }
 
+  /**
+   * Waits until the UI is quiet, as defined by the given monitor. Each check
+   * waits for the main looper to go idle for no longer than the sleep
+   * interval, so a hung main thread cannot hold the wait past its time
+   * limit.
+   *
+   * @throws TimeoutException if the UI is not quiet within the time limit
+   */
+  public void untilQuiet(final QuiescenceMonitor quiescenceMonitor) {
+    until(new Function<Void, Boolean>() {
+      @Override
+      public Boolean apply(Void input) {
+        return quiescenceMonitor.isQuiet(sleepIntervalInMillis);
+      }
+    });
+  }
+
+  /**
+   * Parks until the UI changes after {@code version}, for no longer than the
+   * sleep interval or the time left until {@code end}.
+   */
+  protected void awaitChange(long version, long end) {
+    long remaining = end - clock.now();
+    if (remaining <= 0) {
+      return;
+    }
+
+    try {
+      monitor.awaitChange(version, Math.min(remaining, sleepIntervalInMillis));
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(exception);
+    }
+  }
+
   /**
    * Sets the time limit in milliseconds.
    *
@@ -0,0 +1,206 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@code Runner} which gathers the operations requested by concurrent
+ * callers and hands them to another {@code Runner} in a single batch. When
+ * wrapping an {@link OnMainSyncRunner}, this means that however many threads
+ * are waiting for the main application thread, it is only interrupted once:
+ * the first caller posts a batch, and every operation requested before the
+ * batch has finished running is run as part of it.
+ *
+ * <p>Each caller still blocks until its own operation has run, and an
+ * exception thrown by an operation is rethrown to the thread which requested
+ * it. Operations requested from inside a batch are run immediately, so that
+ * they do not wait for the batch which contains them.
+ */
+public class CoalescingRunner extends Runner {
+  private final Runner delegate;
+
+  private final Object lock = new Object();
+  // Guarded by lock.
+  private List<Operation> pending = Lists.newArrayList();
+  private List<Operation> running = Lists.newArrayList();
+  private boolean batchPosted;
+
+  @Nullable private volatile Thread batchThread;
+
+  // The operation the batch is running, so that a report of a slow batch
+  // names the slow operation rather than the batch.
+  @Nullable private volatile Runnable currentOperation;
+
+  private final Runnable runBatch = new Runnable() {
+    @Override
+    public void run() {
+      batchThread = Thread.currentThread();
+      try {
+        while (true) {
+          List<Operation> operations;
+          synchronized (lock) {
+            if (pending.isEmpty()) {
+              running = Lists.newArrayList();
+              batchPosted = false;
+              return;
+            }
+            operations = pending;
+            pending = Lists.newArrayList();
+            running = operations;
+          }
+
+          for (Operation operation : operations) {
+            currentOperation = operation.runnable;
+            operation.run();
+          }
+        }
+      } finally {
+        currentOperation = null;
+        batchThread = null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      Runnable operation = currentOperation;
+      return (operation == null)
+          ? "Batch of operations" : "Batch running " + operation;
+    }
+  };
+
+  /**
+   * A requested operation and its outcome.
+   */
+  private static class Operation {
+    private final Runnable runnable;
+    private boolean done;
+    @Nullable private RuntimeException failure;
+    @Nullable private Error error;
+
+    Operation(Runnable runnable) {
+      this.runnable = runnable;
+    }
+
+    void run() {
+      try {
+        runnable.run();
+      } catch (RuntimeException exception) {
+        finish(exception, null);
+        return;
+      } catch (Error thrown) {
+        finish(null, thrown);
+        return;
+      }
+      finish(null, null);
+    }
+
+    synchronized void finish(
+        @Nullable RuntimeException exception, @Nullable Error thrown) {
+      if (done) {
+        return;
+      }
+
+      failure = exception;
+      error = thrown;
+      done = true;
+      notifyAll();
+    }
+
+    synchronized void await() {
+      boolean interrupted = false;
+      while (!done) {
+        try {
+          wait();
+        } catch (InterruptedException exception) {
+          // The operation may already be running, so it cannot be abandoned.
+          interrupted = true;
+        }
+      }
+
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+
+  public CoalescingRunner(Runner delegate) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+  }
+
+  @Override
+  public void run(Runnable runnable) {
+    if (Thread.currentThread() == batchThread) {
+      runnable.run();
+      return;
+    }
+
+    Operation operation = new Operation(runnable);
+    boolean postBatch;
+
+    synchronized (lock) {
+      pending.add(operation);
+      postBatch = !batchPosted;
+      batchPosted = true;
+    }
+
+    if (postBatch) {
+      try {
+        delegate.run(runBatch);
+      } catch (RuntimeException exception) {
+        failPending(exception);
+      } catch (Error thrown) {
+        failPending(new IllegalStateException(thrown));
+        throw thrown;
+      }
+    }
+
+    operation.await();
+  }
+
+  /**
+   * Fails every operation which has not finished, if the delegate could not
+   * run the batch or gave up waiting for it. Operations which are running
+   * may still finish later, but their callers are no longer waiting.
+   */
+  private void failPending(RuntimeException exception) {
+    List<Operation> operations = Lists.newArrayList();
+    synchronized (lock) {
+      operations.addAll(pending);
+      operations.addAll(running);
+      pending = Lists.newArrayList();
+      running = Lists.newArrayList();
+      batchPosted = false;
+    }
+
+    for (Operation operation : operations) {
+      operation.finish(exception, null);
+    }
+  }
+}
@@ -17,6 +17,8 @@ limitations under the License.
 
 package com.google.android.testing.nativedriver.server;
 
+import com.google.common.base.Function;
+
 import android.text.InputType;
 import android.view.View;
 import android.widget.EditText;
@@ -47,22 +49,29 @@ public class EditTextElement<V extends EditText> extends TextViewElement<V> {
 
   @Override
   public void clear() {
-    if (isEnabled() && (getView().getInputType() != InputType.TYPE_NULL)) {
-      // Since we actually use EditText.setText(), we don't have to request
-      // focus before calling that.
-      context.getOnMainSyncRunner().run(doClear());
+    // Since we actually use EditText.setText(), we don't have to request
+    // focus before calling that.
+    if (context.getOnMainSyncRunner().run(doClear())) {
+      context.getViewTreeMonitor().invalidate();
     }
   }
 
   /**
-   * Creates a {@code Runnable} to clear the text of {@code EditText}. This
-   * {@code Runnable} should always be run on the main application thread.
+   * Creates a {@code Function} to clear the text of {@code EditText} if it is
+   * editable, returning whether it was cleared. The check and the change are
+   * made in a single operation. This {@code Function} should always be run on
+   * the main application thread.
    */
-  private Runnable doClear() {
-    return new Runnable() {
+  private Function<Void, Boolean> doClear() {
+    return new Function<Void, Boolean>() {
       @Override
-      public void run() {
+      public Boolean apply(Void ignoredArgument) {
+        if (!isEnabled() || (getView().getInputType() == InputType.TYPE_NULL)) {
+          return false;
+        }
+
         getView().setText("");
+        return true;
       }
     };
   }
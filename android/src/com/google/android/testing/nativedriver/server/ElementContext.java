@@ -18,10 +18,15 @@ limitations under the License.
 package com.google.android.testing.nativedriver.server;
 
 import com.google.android.testing.nativedriver.common.Touch;
+import com.google.common.collect.MapMaker;
 
 import android.app.Instrumentation;
 import android.view.View;
 
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * A class that supplies contextual information about
  * {@code AndroidNativeElement}s. This information is needed to facilitate
@@ -38,32 +43,50 @@ import android.view.View;
  * @author Dezheng Xu
  */
 public class ElementContext {
+  // The number of wrappers created between sweeps for detached Views.
+  private static final int VIEW_ELEMENTS_SWEEP_INTERVAL = 512;
+
   private final Activities activities;
   private final ElementFinder elementFinder;
+  private final InputSynchronizer inputSynchronizer;
   private final Instrumentation instrumentation;
   private final KeySender keySender;
   private final Runner onMainSyncRunner;
   private final Touch touch;
   private final ViewElementFactory viewElementFactory;
   private final ViewHierarchyAnalyzer viewHierarchyAnalyzer;
+  private final ViewTreeMonitor viewTreeMonitor;
+
+  // Weak keys are compared by identity, so each View gets its own wrapper. The
+  // wrapper refers to its View strongly, so the values must not be strong or
+  // the keys would never be collected. Soft values keep the wrappers of a
+  // stable screen alive between searches, and wrappers of detached Views are
+  // swept out explicitly.
+  private final ConcurrentMap<View, ViewElement<? extends View>> viewElements
+      = new MapMaker().weakKeys().softValues().makeMap();
+  private final AtomicInteger viewElementsCreated = new AtomicInteger();
 
   public ElementContext(
       Activities activities,
       ElementFinder elementFinder,
+      InputSynchronizer inputSynchronizer,
       Instrumentation instrumentation,
       KeySender keySender,
       Runner onMainSyncRunner,
       Touch touch,
       ViewElementFactory viewElementFactory,
-      ViewHierarchyAnalyzer viewHierarchyAnalyzer) {
+      ViewHierarchyAnalyzer viewHierarchyAnalyzer,
+      ViewTreeMonitor viewTreeMonitor) {
     this.activities = activities;
     this.elementFinder = elementFinder;
+    this.inputSynchronizer = inputSynchronizer;
     this.instrumentation = instrumentation;
     this.keySender = keySender;
     this.onMainSyncRunner = onMainSyncRunner;
     this.touch = touch;
     this.viewElementFactory = viewElementFactory;
     this.viewHierarchyAnalyzer = viewHierarchyAnalyzer;
+    this.viewTreeMonitor = viewTreeMonitor;
   }
 
   public static ElementContext withDefaults(
@@ -76,15 +99,26 @@ public class ElementContext {
       rClassReader = new RClassReader("android.R");
     }
 
+    Runner onMainSyncRunner = new InstrumentedRunner(
+        new CoalescingRunner(
+            new MainLooperRunner(instrumentation.getMainThreadWatchdog())),
+        instrumentation.getRunnerMetrics());
+    ViewTreeMonitor viewTreeMonitor = instrumentation.getViewTreeMonitor();
+    InputSynchronizer inputSynchronizer
+        = new InputSynchronizer(instrumentation);
+
     return new ElementContext(
         instrumentation.getActivities(),
-        new ElementFinder(rClassReader, new AndroidWait()),
+        new ElementFinder(rClassReader, new AndroidWait(viewTreeMonitor),
+            new HierarchySnapshotter(onMainSyncRunner, viewTreeMonitor)),
+        inputSynchronizer,
         instrumentation,
-        new KeySender(instrumentation),
-        new OnMainSyncRunner(instrumentation),
-        AndroidNativeTouch.withDefaults(instrumentation),
+        new KeySender(instrumentation, inputSynchronizer),
+        onMainSyncRunner,
+        AndroidNativeTouch.withDefaults(instrumentation, inputSynchronizer),
         ViewElementFactory.getDefaultInstance(),
-        ViewHierarchyAnalyzer.getDefaultInstance());
+        ViewHierarchyAnalyzer.getDefaultInstance(),
+        viewTreeMonitor);
   }
 
   public Activities getActivities() {
@@ -95,6 +129,14 @@ public class ElementContext {
     return elementFinder;
   }
 
+  /**
+   * Returns the {@code InputSynchronizer} shared by the key sender, the touch
+   * and the other sources of injected input.
+   */
+  public InputSynchronizer getInputSynchronizer() {
+    return inputSynchronizer;
+  }
+
   public KeySender getKeySender() {
     return keySender;
   }
@@ -125,15 +167,58 @@ public class ElementContext {
   }
 
   /**
-   * Wraps a {@code View} in a new instance of {@code ViewElement} using the
-   * most appropriate wrapper class available. This is accomplished by using the
+   * Returns the monitor whose version changes whenever the UI may have
+   * changed.
+   */
+  public ViewTreeMonitor getViewTreeMonitor() {
+    return viewTreeMonitor;
+  }
+
+  /**
+   * Wraps a {@code View} in an instance of {@code ViewElement} using the most
+   * appropriate wrapper class available. This is accomplished by using the
    * {@code viewElementFactory} instance that was passed to the constructor.
    *
+   * <p>The same wrapper is returned for a given {@code View} until the
+   * {@code View} is detached from its window, so repeated searches do not
+   * allocate new wrappers and the wrappers can be compared with {@code ==}.
+   *
    * @param viewToWrap the {@code View} to wrap
-   * @return a reference to a new {@code ViewElement} that wraps the
-   *         {@code View}
+   * @return a reference to a {@code ViewElement} that wraps the {@code View}
    */
   public ViewElement<? extends View> newViewElement(View viewToWrap) {
-    return viewElementFactory.newViewElement(this, viewToWrap);
+    ViewElement<? extends View> element = viewElements.get(viewToWrap);
+
+    if (element == null) {
+      ViewElement<? extends View> newElement
+          = viewElementFactory.newViewElement(this, viewToWrap);
+      element = viewElements.putIfAbsent(viewToWrap, newElement);
+
+      if (element == null) {
+        element = newElement;
+
+        if (viewElementsCreated.incrementAndGet()
+            % VIEW_ELEMENTS_SWEEP_INTERVAL == 0) {
+          removeDetachedViewElements();
+        }
+      }
+    }
+
+    return element;
+  }
+
+  /**
+   * Drops the cached wrappers of {@code View}s which are no longer attached to
+   * a window. If such a {@code View} is attached again, it will get a new
+   * wrapper.
+   */
+  private void removeDetachedViewElements() {
+    Iterator<View> views = viewElements.keySet().iterator();
+
+    while (views.hasNext()) {
+      if (views.next().getWindowToken() == null) {
+        views.remove();
+      }
+    }
   }
 }
@@ -17,13 +17,18 @@ limitations under the License.
 
 package com.google.android.testing.nativedriver.server;
 
+import com.google.android.testing.nativedriver.common.FindsBySelector;
 import com.google.android.testing.nativedriver.common.FindsByText;
+import com.google.android.testing.nativedriver.common.Locator;
+import com.google.android.testing.nativedriver.common.WaitCondition;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.NoSuchElementException;
@@ -34,7 +39,10 @@ import org.openqa.selenium.internal.FindsByClassName;
 import org.openqa.selenium.internal.FindsById;
 import org.openqa.selenium.support.ui.TimeoutException;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
@@ -78,16 +86,57 @@ import javax.annotation.Nullable;
  * <pre>androidNativeDriver.findElement(By.id("$optionsMenu"))
  * .findElement(By.id("child"))</pre>
  *
+ * <h3>Finding by selector ({@link FindsBySelector})</h3>
+ *
+ * <p>A compound selector, such as
+ * {@code android.widget.ListView > TextView[text*='Mars']}, combines class
+ * names and attribute conditions on an element and its ancestors. See
+ * {@link com.google.android.testing.nativedriver.common.AndroidNativeBy#selector(String)}
+ * for the syntax. Selectors are compiled by a {@link SelectorCompiler} and
+ * evaluated in a single search, which replaces a chain of nested
+ * {@code findElement} calls.
+ *
+ * <h3>Finding in batches</h3>
+ *
+ * <p>{@link #findElementsInBatch(ElementSearchScope, List)} evaluates any
+ * number of {@link Locator}s against a single snapshot, visiting each element
+ * once no matter how many locators there are. This is meant for checking that
+ * all of the expected elements of a screen are present in one request.
+ *
+ * <h3>Text index</h3>
+ *
+ * <p>Finds by text and partial text look up the {@link TextIndex} of the
+ * snapshot, which is built on the first such find and reused by later finds
+ * on the same snapshot. Only the candidates from the index are checked. This
+ * can be turned off with {@link #setTextIndexEnabled(boolean)}.
+ *
+ * <h3>Threading</h3>
+ *
+ * <p>Each search attempt takes one {@link HierarchySnapshot} of the search
+ * scope with the {@link HierarchySnapshotter} passed to the constructor. The
+ * filters are then applied to the copied state of each element on the calling
+ * thread, so the main application thread is only occupied while the snapshot
+ * is being taken. A snapshot normally holds every element of the scope, so
+ * that it can be reused by later searches. The exception is a depth-first
+ * search for a single element when the cached snapshot is out of date: that
+ * snapshot is only taken as far as the first match, and is not cached.
+ *
  * @author Matt DeVore
  * @author Tomohiro Kaizu
  */
 public class ElementFinder {
   private final RClassReader rClassReader;
   private final AndroidWait wait;
+  private final HierarchySnapshotter snapshotter;
+  private final SelectorCompiler selectorCompiler;
+  private final SearchStatistics statistics = new SearchStatistics();
+  private volatile TraversalOrder traversalOrder = TraversalOrder.DEPTH_FIRST;
+  private volatile boolean textIndexEnabled = true;
+  @Nullable private volatile QuiescenceMonitor fastAbsenceMonitor;
   private static enum IdType {LITERAL, ANDROID}
 
   private static interface FilterCondition
-      extends Predicate<AndroidNativeElement> {
+      extends Predicate<HierarchySnapshot.Node> {
     String notFoundExceptionMessage();
   }
 
@@ -102,7 +151,7 @@ public class ElementFinder {
     }
 
     @Override
-    public boolean apply(AndroidNativeElement input) {
+    public boolean apply(HierarchySnapshot.Node input) {
       return androidId.equals(input.getAndroidId());
     }
 
@@ -122,7 +171,7 @@ public class ElementFinder {
     }
 
     @Override
-    public boolean apply(AndroidNativeElement input) {
+    public boolean apply(HierarchySnapshot.Node input) {
       return literalId.equals(input.getLiteralId());
     }
 
@@ -133,7 +182,20 @@ public class ElementFinder {
     }
   }
 
-  private static class ByTextFilterCondition implements FilterCondition {
+  /**
+   * A filter which can use a {@link TextIndex} to find the nodes it may
+   * match without visiting every node.
+   */
+  private static interface IndexedFilterCondition extends FilterCondition {
+    /**
+     * Returns the nodes which may match this filter, in depth-first
+     * pre-order. Every node which matches must be included.
+     */
+    List<HierarchySnapshot.Node> candidates(HierarchySnapshot snapshot);
+  }
+
+  private static class ByTextFilterCondition
+      implements IndexedFilterCondition {
     private final String text;
 
     public ByTextFilterCondition(String text) {
@@ -141,17 +203,24 @@ public class ElementFinder {
     }
 
     @Override
-    public boolean apply(AndroidNativeElement input) {
+    public boolean apply(HierarchySnapshot.Node input) {
       return text.equals(input.getText());
     }
 
+    @Override
+    public List<HierarchySnapshot.Node> candidates(
+        HierarchySnapshot snapshot) {
+      return snapshot.getTextIndex().findByText(text);
+    }
+
     @Override
     public String notFoundExceptionMessage() {
       return "Could not find element with exact text: '" + text + "'";
     }
   }
 
-  private static class ByPartialTextFilterCondition implements FilterCondition {
+  private static class ByPartialTextFilterCondition
+      implements IndexedFilterCondition {
     private final String text;
 
     public ByPartialTextFilterCondition(String text) {
@@ -159,11 +228,17 @@ public class ElementFinder {
     }
 
     @Override
-    public boolean apply(AndroidNativeElement input) {
+    public boolean apply(HierarchySnapshot.Node input) {
       String elementText = input.getText();
       return (elementText != null) && (elementText.indexOf(text) != -1);
     }
 
+    @Override
+    public List<HierarchySnapshot.Node> candidates(
+        HierarchySnapshot snapshot) {
+      return snapshot.getTextIndex().findByPartialText(text);
+    }
+
     @Override
     public String notFoundExceptionMessage() {
       return "Could not find element containing text: '" + text + "'";
@@ -172,14 +247,25 @@ public class ElementFinder {
 
   private static class ByClassNameFilterCondition implements FilterCondition {
     private final String className;
+    @Nullable private final Class<?> resolvedClass;
 
     public ByClassNameFilterCondition(String className) {
       this.className = className;
+      this.resolvedClass = loadClass(className);
+    }
+
+    @Nullable
+    private static Class<?> loadClass(String className) {
+      try {
+        return Class.forName(className);
+      } catch (ClassNotFoundException exception) {
+        return null;
+      }
     }
 
     @Override
-    public boolean apply(AndroidNativeElement input) {
-      return input.supportsClass(className);
+    public boolean apply(HierarchySnapshot.Node input) {
+      return input.supportsClass(resolvedClass, className);
     }
 
     @Override
@@ -190,8 +276,29 @@ public class ElementFinder {
     }
   }
 
-  private class SearchContextImpl
-      implements SearchContext, FindsById, FindsByText, FindsByClassName {
+  private static class BySelectorFilterCondition implements FilterCondition {
+    private final String selector;
+    private final Predicate<HierarchySnapshot.Node> compiled;
+
+    public BySelectorFilterCondition(
+        String selector, Predicate<HierarchySnapshot.Node> compiled) {
+      this.selector = selector;
+      this.compiled = compiled;
+    }
+
+    @Override
+    public boolean apply(HierarchySnapshot.Node input) {
+      return compiled.apply(input);
+    }
+
+    @Override
+    public String notFoundExceptionMessage() {
+      return "Could not find element matching selector: '" + selector + "'";
+    }
+  }
+
+  private class SearchContextImpl implements SearchContext, FindsById,
+      FindsByText, FindsByClassName, FindsBySelector {
     private final ElementSearchScope scope;
 
     private SearchContextImpl(ElementSearchScope scope) {
@@ -222,8 +329,11 @@ public class ElementFinder {
         return wait.until(new Function<Void, List<WebElement>>() {
           @Override
           public List<WebElement> apply(Void input) {
+            long version = snapshotter.getMonitor().getVersion();
             List<WebElement> found = by.findElements(SearchContextImpl.this);
-            return found.isEmpty() ? null : found;
+
+            return (found.isEmpty() && !isSettledSince(version))
+                ? null : found;
           }
         });
       } catch (TimeoutException exception) {
@@ -247,7 +357,7 @@ public class ElementFinder {
       if (result == null) {
         throw new NoSuchElementException(String.format(
             "Cannot find element with Android ID: %d (original ID is '%s')",
-            androidId, using));
+            androidId, describeAndroidId(using, androidId)));
       } else if (!scope.equals(result) && !result.shouldOmitFromFindResults()) {
         return result;
       } else {
@@ -260,8 +370,9 @@ public class ElementFinder {
 
         // So delegate to the plural method finder, which only searches
         // children, and filters 'omitted' elements itself.
-        return findElementFromHierarchy(scope.getChildren(),
-            new ByAndroidIdFilterCondition(using, androidId));
+        return findElementFromHierarchy(scope,
+            new ByAndroidIdFilterCondition(
+                describeAndroidId(using, androidId), androidId));
       }
     }
 
@@ -271,14 +382,14 @@ public class ElementFinder {
         return findElementByAndroidId(using);
       } else {
         return findElementFromHierarchy(
-            scope.getChildren(), new ByLiteralIdFilterCondition(using));
+            scope, new ByLiteralIdFilterCondition(using));
       }
     }
 
     @Override
     public List<WebElement> findElementsById(String using) {
       Preconditions.checkNotNull(using);
-      Predicate<AndroidNativeElement> filter;
+      Predicate<HierarchySnapshot.Node> filter;
 
       if (idType(using) == IdType.LITERAL) {
         filter = new ByLiteralIdFilterCondition(using);
@@ -293,28 +404,29 @@ public class ElementFinder {
       }
 
       return addElementsFromHierarchy(Lists.<WebElement>newArrayList(),
-          scope.getChildren(), filter, Integer.MAX_VALUE /* maxResults */);
+          snapshotter.capture(scope), filter,
+          Integer.MAX_VALUE /* maxResults */);
     }
 
     @Override
     public WebElement findElementByText(String using) {
       Preconditions.checkNotNull(using);
       FilterCondition filter = new ByTextFilterCondition(using);
-      return findElementFromHierarchy(scope.getChildren(), filter);
+      return findElementFromHierarchy(scope, filter);
     }
 
     @Override
     public WebElement findElementByPartialText(String using) {
       Preconditions.checkNotNull(using);
       FilterCondition filter = new ByPartialTextFilterCondition(using);
-      return findElementFromHierarchy(scope.getChildren(), filter);
+      return findElementFromHierarchy(scope, filter);
     }
 
     @Override
     public List<WebElement> findElementsByText(String using) {
       Preconditions.checkNotNull(using);
       return addElementsFromHierarchy(Lists.<WebElement>newArrayList(),
-          scope.getChildren(), new ByTextFilterCondition(using),
+          snapshotter.capture(scope), new ByTextFilterCondition(using),
           Integer.MAX_VALUE /* maxResults */);
     }
 
@@ -322,7 +434,8 @@ public class ElementFinder {
     public List<WebElement> findElementsByPartialText(String using) {
       Preconditions.checkNotNull(using);
       return addElementsFromHierarchy(Lists.<WebElement>newArrayList(),
-          scope.getChildren(), new ByPartialTextFilterCondition(using),
+          snapshotter.capture(scope),
+          new ByPartialTextFilterCondition(using),
           Integer.MAX_VALUE /* maxResults */);
     }
 
@@ -330,20 +443,44 @@ public class ElementFinder {
     public WebElement findElementByClassName(String using) {
       Preconditions.checkNotNull(using);
       FilterCondition filter = new ByClassNameFilterCondition(using);
-      return findElementFromHierarchy(scope.getChildren(), filter);
+      return findElementFromHierarchy(scope, filter);
     }
 
     @Override
     public List<WebElement> findElementsByClassName(String using) {
       return addElementsFromHierarchy(Lists.<WebElement>newArrayList(),
-          scope.getChildren(), new ByClassNameFilterCondition(using),
+          snapshotter.capture(scope), new ByClassNameFilterCondition(using),
+          Integer.MAX_VALUE /* maxResults */);
+    }
+
+    @Override
+    public WebElement findElementBySelector(String using) {
+      Preconditions.checkNotNull(using);
+      return findElementFromHierarchy(
+          scope, newSelectorFilterCondition(using));
+    }
+
+    @Override
+    public List<WebElement> findElementsBySelector(String using) {
+      Preconditions.checkNotNull(using);
+      return addElementsFromHierarchy(Lists.<WebElement>newArrayList(),
+          snapshotter.capture(scope), newSelectorFilterCondition(using),
           Integer.MAX_VALUE /* maxResults */);
     }
   }
 
-  public ElementFinder(RClassReader rClassReader, AndroidWait wait) {
+  public ElementFinder(RClassReader rClassReader, AndroidWait wait,
+      HierarchySnapshotter snapshotter) {
     this.rClassReader = rClassReader;
     this.wait = wait;
+    this.snapshotter = snapshotter;
+    this.selectorCompiler = new SelectorCompiler(rClassReader,
+        new Function<String, Integer>() {
+          @Override
+          public Integer apply(String id) {
+            return parseAsAndroidId(id);
+          }
+        });
   }
 
   public RClassReader getRClassReader() {
@@ -354,20 +491,336 @@ public class ElementFinder {
     return wait;
   }
 
+  public HierarchySnapshotter getSnapshotter() {
+    return snapshotter;
+  }
+
+  /**
+   * Returns the counters of the work done by searches of this instance.
+   */
+  public SearchStatistics getStatistics() {
+    return statistics;
+  }
+
+  public TraversalOrder getTraversalOrder() {
+    return traversalOrder;
+  }
+
+  /**
+   * Sets the order in which elements are visited by later searches. The
+   * default is {@link TraversalOrder#DEPTH_FIRST}; sessions choose another
+   * with the {@code traversalOrder} capability.
+   */
+  public void setTraversalOrder(TraversalOrder traversalOrder) {
+    this.traversalOrder = Preconditions.checkNotNull(traversalOrder);
+  }
+
+  public boolean isTextIndexEnabled() {
+    return textIndexEnabled;
+  }
+
+  /**
+   * Sets whether finds by text and partial text use the {@link TextIndex} of
+   * each snapshot instead of checking the text of every element. The index is
+   * enabled by default.
+   */
+  public void setTextIndexEnabled(boolean textIndexEnabled) {
+    this.textIndexEnabled = textIndexEnabled;
+  }
+
+  @Nullable
+  public QuiescenceMonitor getFastAbsenceMonitor() {
+    return fastAbsenceMonitor;
+  }
+
+  /**
+   * Sets the monitor used to end a find of multiple elements early when
+   * nothing is found. If the UI is quiet and has not changed since the
+   * search, the element is taken to be absent and an empty list is returned
+   * at once instead of after the implicit wait. A change to the UI during the
+   * check starts the search over. Pass {@code null}, the default, to always
+   * wait for the full implicit wait.
+   */
+  public void setFastAbsenceMonitor(
+      @Nullable QuiescenceMonitor fastAbsenceMonitor) {
+    this.fastAbsenceMonitor = fastAbsenceMonitor;
+  }
+
+  /**
+   * Returns whether fast absence is enabled and the UI is quiet and
+   * unchanged since the monitor was at the given version.
+   */
+  private boolean isSettledSince(long version) {
+    QuiescenceMonitor quiescenceMonitor = fastAbsenceMonitor;
+
+    return (quiescenceMonitor != null)
+        && quiescenceMonitor.isQuiet()
+        && (snapshotter.getMonitor().getVersion() == version);
+  }
+
   public SearchContext getSearchContext(ElementSearchScope scope) {
     return new SearchContextImpl(scope);
   }
 
+  /**
+   * Finds the elements matching each of the given locators. All of the
+   * locators are evaluated against the same snapshot of the scope in a single
+   * pass over its elements. The search is retried until every locator has
+   * matched at least one element or the wait times out, in which case the
+   * results of the last attempt are returned.
+   *
+   * @return a map from each locator to the elements it matched, in the order
+   *         of {@code locators}. Locators which matched nothing are mapped to
+   *         an empty list.
+   * @throws WebDriverException if a locator uses an unsupported strategy, or
+   *         the same locator is given more than once
+   */
+  public Map<Locator, List<WebElement>> findElementsInBatch(
+      final ElementSearchScope scope, List<Locator> locators) {
+    final Map<Locator, FilterCondition> filters = Maps.newLinkedHashMap();
+    for (Locator locator : locators) {
+      if (filters.containsKey(locator)) {
+        throw new WebDriverException(
+            "Locator given more than once in a batch: " + locator);
+      }
+      filters.put(locator, newFilterCondition(locator));
+    }
+
+    final List<Map<Locator, List<WebElement>>> lastAttempt
+        = Lists.newArrayList();
+
+    try {
+      return wait.until(new Function<Void, Map<Locator, List<WebElement>>>() {
+        @Override
+        public Map<Locator, List<WebElement>> apply(Void input) {
+          Map<Locator, List<WebElement>> found
+              = filterInOnePass(snapshotter.capture(scope), filters);
+          lastAttempt.clear();
+          lastAttempt.add(found);
+          return found.containsValue(ImmutableList.of()) ? null : found;
+        }
+      });
+    } catch (TimeoutException exception) {
+      if (lastAttempt.isEmpty()) {
+        throw exception;
+      }
+
+      return lastAttempt.get(0);
+    }
+  }
+
+  /**
+   * Waits until the elements in the scope matching {@code locator} satisfy
+   * {@code condition}. The condition is checked against a fresh snapshot
+   * each time the UI changes, using a wait of its own with the given
+   * timeout rather than the implicit wait.
+   *
+   * @see com.google.android.testing.nativedriver.common.WaitsForElements
+   */
+  public List<WebElement> waitForElements(final ElementSearchScope scope,
+      Locator locator, final WaitCondition condition,
+      @Nullable String argument, long timeoutInMillis) {
+    final FilterCondition filter = newFilterCondition(locator);
+    final Predicate<HierarchySnapshot.Node> state
+        = newStateCondition(condition, argument);
+    final int minimumCount = (condition == WaitCondition.COUNT_AT_LEAST)
+        ? parseCount(argument) : 1;
+
+    AndroidWait conditionWait = new AndroidWait(snapshotter.getMonitor());
+    conditionWait.setTimeoutInMillis(timeoutInMillis);
+
+    try {
+      return conditionWait.until(new Function<Void, List<WebElement>>() {
+        @Override
+        public List<WebElement> apply(Void input) {
+          List<WebElement> found = Lists.newArrayList();
+
+          if (filter != null) {
+            HierarchySnapshot snapshot = snapshotter.capture(scope);
+            int visited = 0;
+
+            for (HierarchySnapshot.Node node
+                : candidateNodes(snapshot, filter)) {
+              visited++;
+
+              if (filter.apply(node) && !node.isOmittedFromFindResults()
+                  && state.apply(node)) {
+                found.add(node.getElement());
+
+                if (condition == WaitCondition.ABSENT) {
+                  break;
+                }
+              }
+            }
+
+            statistics.recordQuery(snapshot.size(), visited);
+          }
+
+          if (condition == WaitCondition.ABSENT) {
+            return found.isEmpty() ? ImmutableList.<WebElement>of() : null;
+          }
+
+          return (found.size() >= minimumCount) ? found : null;
+        }
+      });
+    } catch (TimeoutException exception) {
+      throw new TimeoutException(String.format(
+          "Timed out after %d ms waiting for %s to be %s%s",
+          timeoutInMillis, locator, condition.getName(),
+          (argument == null) ? "" : " " + argument), exception);
+    }
+  }
+
+  /**
+   * Returns the predicate which a node matching the locator must also satisfy
+   * to count towards the condition.
+   */
+  private static Predicate<HierarchySnapshot.Node> newStateCondition(
+      WaitCondition condition, @Nullable final String argument) {
+    switch (condition) {
+      case VISIBLE:
+        return new Predicate<HierarchySnapshot.Node>() {
+          @Override
+          public boolean apply(HierarchySnapshot.Node input) {
+            return input.isDisplayed();
+          }
+        };
+      case ENABLED:
+        return new Predicate<HierarchySnapshot.Node>() {
+          @Override
+          public boolean apply(HierarchySnapshot.Node input) {
+            return input.isEnabled();
+          }
+        };
+      case TEXT_EQUALS:
+        if (argument == null) {
+          throw new WebDriverException(
+              "The textEquals condition requires an argument");
+        }
+        return new Predicate<HierarchySnapshot.Node>() {
+          @Override
+          public boolean apply(HierarchySnapshot.Node input) {
+            return argument.equals(input.getText());
+          }
+        };
+      default:
+        return Predicates.alwaysTrue();
+    }
+  }
+
+  private static int parseCount(@Nullable String argument) {
+    try {
+      return Integer.parseInt(String.valueOf(argument));
+    } catch (NumberFormatException exception) {
+      throw new WebDriverException(
+          "The countAtLeast condition requires an integer argument but got: "
+          + argument, exception);
+    }
+  }
+
+  /**
+   * Returns the filter corresponding to the given locator, or {@code null} if
+   * the locator is valid but cannot match any element, such as an ID which is
+   * not in the {@code R} class.
+   */
+  @Nullable
+  private FilterCondition newFilterCondition(Locator locator) {
+    String using = locator.getUsing();
+    String value = locator.getValue();
+
+    if (Locator.USING_ID.equals(using)) {
+      if (idType(value) == IdType.LITERAL) {
+        return new ByLiteralIdFilterCondition(value);
+      }
+
+      Integer androidId = parseAsAndroidId(value);
+      return (androidId == null)
+          ? null : new ByAndroidIdFilterCondition(value, androidId);
+    } else if (FindsByText.USING_TEXT.equals(using)) {
+      return new ByTextFilterCondition(value);
+    } else if (FindsByText.USING_PARTIALTEXT.equals(using)) {
+      return new ByPartialTextFilterCondition(value);
+    } else if (Locator.USING_CLASS_NAME.equals(using)) {
+      return new ByClassNameFilterCondition(value);
+    } else if (FindsBySelector.USING_SELECTOR.equals(using)) {
+      return newSelectorFilterCondition(value);
+    }
+
+    throw new WebDriverException(
+        "Unsupported search strategy: " + locator);
+  }
+
+  /**
+   * Applies every filter to each node of the snapshot, visiting the nodes
+   * only once.
+   */
+  private Map<Locator, List<WebElement>> filterInOnePass(
+      HierarchySnapshot snapshot, Map<Locator, FilterCondition> filters) {
+    List<Locator> locators = ImmutableList.copyOf(filters.keySet());
+    List<FilterCondition> conditions = Lists.newArrayList();
+    List<List<WebElement>> results = Lists.newArrayList();
+
+    for (FilterCondition condition : filters.values()) {
+      if (condition != null) {
+        conditions.add(condition);
+      }
+    }
+    for (int i = 0; i < conditions.size(); i++) {
+      results.add(Lists.<WebElement>newArrayList());
+    }
+
+    if (!conditions.isEmpty()) {
+      for (HierarchySnapshot.Node node : snapshot.getNodes(traversalOrder)) {
+        if (node.isOmittedFromFindResults()) {
+          continue;
+        }
+
+        for (int i = 0; i < conditions.size(); i++) {
+          if (conditions.get(i).apply(node)) {
+            results.get(i).add(node.getElement());
+          }
+        }
+      }
+
+      statistics.recordQuery(snapshot.size(), snapshot.size());
+    }
+
+    Map<Locator, List<WebElement>> found = Maps.newLinkedHashMap();
+    int next = 0;
+    for (Locator locator : locators) {
+      if (filters.get(locator) == null) {
+        found.put(locator, ImmutableList.<WebElement>of());
+      } else {
+        List<WebElement> elements = results.get(next++);
+        found.put(locator, elements.isEmpty()
+            ? ImmutableList.<WebElement>of() : elements);
+      }
+    }
+
+    return found;
+  }
+
+  private FilterCondition newSelectorFilterCondition(String selector) {
+    return new BySelectorFilterCondition(
+        selector, selectorCompiler.compile(selector));
+  }
+
   private static IdType idType(String id) {
     return id.startsWith("$") ? IdType.LITERAL : IdType.ANDROID;
   }
 
-  private static WebElement findElementFromHierarchy(
-      Iterable<? extends AndroidNativeElement> topLevelElements,
-      FilterCondition filter) {
+  /**
+   * Finds the first element in the scope which matches the filter. In
+   * depth-first order, a scope without an up-to-date snapshot is only copied
+   * as far as the first match.
+   */
+  private WebElement findElementFromHierarchy(
+      ElementSearchScope scope, FilterCondition filter) {
+    HierarchySnapshot snapshot = (traversalOrder == TraversalOrder.DEPTH_FIRST)
+        ? snapshotter.captureUntil(scope, filter)
+        : snapshotter.capture(scope);
     List<WebElement> result = addElementsFromHierarchy(
-        Lists.<WebElement>newArrayList(), topLevelElements,
-        filter, 1 /* maxResults */);
+        Lists.<WebElement>newArrayList(), snapshot, filter, 1 /* maxResults */);
 
     if (result.isEmpty()) {
       throw new NoSuchElementException(filter.notFoundExceptionMessage());
@@ -376,26 +829,72 @@ public class ElementFinder {
     return result.get(0);
   }
 
-  private static List<WebElement> addElementsFromHierarchy(
-      List<WebElement> destination,
-      Iterable<? extends AndroidNativeElement> topLevelElements,
-      Predicate<AndroidNativeElement> filter, int maxResults) {
-    for (AndroidNativeElement element : topLevelElements) {
-      if (destination.size() >= maxResults) {
-        break;
-      }
+  /**
+   * Adds the elements in the snapshot which match the filter to
+   * {@code destination}, in the current traversal order. The search stops as
+   * soon as {@code destination} holds {@code maxResults} elements.
+   */
+  private List<WebElement> addElementsFromHierarchy(
+      List<WebElement> destination, HierarchySnapshot snapshot,
+      Predicate<HierarchySnapshot.Node> filter, int maxResults) {
+    int visited = 0;
+    List<HierarchySnapshot.Node> nodes = candidateNodes(snapshot, filter);
 
-      if (filter.apply(element) && !element.shouldOmitFromFindResults()) {
-        destination.add(element);
-      }
+    if (destination.size() < maxResults) {
+      for (HierarchySnapshot.Node node : nodes) {
+        visited++;
 
-      addElementsFromHierarchy(
-          destination, element.getChildren(), filter, maxResults);
+        if (filter.apply(node) && !node.isOmittedFromFindResults()) {
+          destination.add(node.getElement());
+
+          if (destination.size() >= maxResults) {
+            break;
+          }
+        }
+      }
     }
 
+    statistics.recordQuery(snapshot.size(), visited);
     return destination;
   }
 
+  /**
+   * Returns the nodes of the snapshot which may match the filter, in the
+   * current traversal order.
+   */
+  private List<HierarchySnapshot.Node> candidateNodes(
+      HierarchySnapshot snapshot, Predicate<HierarchySnapshot.Node> filter) {
+    if (textIndexEnabled && (filter instanceof IndexedFilterCondition)) {
+      return inTraversalOrder(
+          ((IndexedFilterCondition) filter).candidates(snapshot));
+    }
+
+    return snapshot.getNodes(traversalOrder);
+  }
+
+  /**
+   * Sorts nodes given in depth-first pre-order into the current traversal
+   * order.
+   */
+  private List<HierarchySnapshot.Node> inTraversalOrder(
+      List<HierarchySnapshot.Node> nodes) {
+    if (traversalOrder == TraversalOrder.DEPTH_FIRST || nodes.size() < 2) {
+      return nodes;
+    }
+
+    // A stable sort by depth turns pre-order into breadth-first order.
+    List<HierarchySnapshot.Node> sorted = Lists.newArrayList(nodes);
+    Collections.sort(sorted, new Comparator<HierarchySnapshot.Node>() {
+      @Override
+      public int compare(
+          HierarchySnapshot.Node first, HierarchySnapshot.Node second) {
+        return first.getDepth() - second.getDepth();
+      }
+    });
+
+    return sorted;
+  }
+
   @Nullable
   private Integer parseAsAndroidId(String id) {
     if (id.startsWith("#")) {
@@ -409,6 +908,20 @@ public class ElementFinder {
     }
   }
 
+  /**
+   * Returns the given string ID, followed by the symbolic name of the ID in
+   * parentheses if the string ID is numeric and the name is known. This is
+   * used to make error messages more readable.
+   */
+  private String describeAndroidId(String using, int androidId) {
+    if (!using.startsWith("#")) {
+      return using;
+    }
+
+    String name = rClassReader.getRFieldName("id", androidId);
+    return (name == null) ? using : (using + " (id/" + name + ")");
+  }
+
   /**
    * Converts the given ID (such as {@code TextView01}) to an integral Android
    * ID. This default implementation uses the {@code RClassReader} passed to the
@@ -0,0 +1,276 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import java.util.List;
+
+/**
+ * The path of a gesture made by one or more pointers, which is turned into a
+ * stream of {@code MotionEvent}s with precise event times. Every pointer goes
+ * down at the same time, stays still for the hold time, moves in a straight
+ * line from its start to its end point during the move time, stays still at
+ * the end point for the rest time and then goes up.
+ *
+ * <p>The move is sampled every {@link #SAMPLE_INTERVAL} milliseconds, and
+ * each sample moves all of the pointers at once, so that a multi-pointer
+ * gesture such as a pinch is seen by the application the same way as one made
+ * by fingers. A gesture which ends with no rest time keeps the velocity of its
+ * move, so it is seen as a fling.
+ *
+ * <p>The events are planned when the path is created, and obtained from the
+ * {@code MotionEvent} pool one at a time by {@link Events} as they are
+ * injected.
+ *
+ * <p>Instances of this class are immutable.
+ */
+public class GesturePath {
+  /**
+   * The time in milliseconds between two samples of a move. This is shorter
+   * than the refresh period of the screen, so each frame sees a move.
+   */
+  public static final long SAMPLE_INTERVAL = 10;
+
+  private static final int META_STATE = 0;
+  private static final float PRECISION = 1.0f;
+  private static final int DEVICE_ID = 0;
+  private static final int EDGE_FLAGS = 0;
+  private static final int FLAGS = 0;
+
+  /**
+   * The start and end points of one pointer.
+   */
+  public static final class Stroke {
+    private final int startX;
+    private final int startY;
+    private final int endX;
+    private final int endY;
+
+    public Stroke(int startX, int startY, int endX, int endY) {
+      this.startX = startX;
+      this.startY = startY;
+      this.endX = endX;
+      this.endY = endY;
+    }
+
+    private float xAt(float fraction) {
+      return startX + ((endX - startX) * fraction);
+    }
+
+    private float yAt(float fraction) {
+      return startY + ((endY - startY) * fraction);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("(%d, %d)->(%d, %d)", startX, startY, endX, endY);
+    }
+  }
+
+  private final List<Stroke> strokes;
+  private final long holdTime;
+  private final long moveTime;
+  private final long restTime;
+
+  // The plan of the events, indexed by the order of the events. The events
+  // themselves are only obtained while the gesture is injected.
+  private final long[] timeOffsets;
+  private final int[] actions;
+  private final int[] pointerCounts;
+  private final float[] fractions;
+  private int plannedEvents;
+
+  /**
+   * @param holdTime the time in milliseconds to stay at the start points
+   *        after going down
+   * @param moveTime the time in milliseconds taken to move from the start
+   *        points to the end points
+   * @param restTime the time in milliseconds to stay at the end points before
+   *        going up
+   * @param strokes the stroke of each pointer, in the order the pointers go
+   *        down
+   */
+  public GesturePath(long holdTime, long moveTime, long restTime,
+      List<Stroke> strokes) {
+    Preconditions.checkArgument(!strokes.isEmpty(), "No strokes given.");
+    Preconditions.checkArgument(holdTime >= 0 && moveTime >= 0
+        && restTime >= 0, "Negative time given.");
+    this.strokes = ImmutableList.copyOf(strokes);
+    this.holdTime = holdTime;
+    this.moveTime = moveTime;
+    this.restTime = restTime;
+
+    int pointerCount = strokes.size();
+    int moveSamples
+        = (int) ((moveTime + SAMPLE_INTERVAL - 1) / SAMPLE_INTERVAL);
+    int eventCount = (pointerCount * 2) + moveSamples
+        + ((holdTime > 0) ? 1 : 0) + ((restTime > 0) ? 1 : 0);
+    timeOffsets = new long[eventCount];
+    actions = new int[eventCount];
+    pointerCounts = new int[eventCount];
+    fractions = new float[eventCount];
+
+    plan(0, MotionEvent.ACTION_DOWN, 1, 0);
+    for (int pointer = 1; pointer < pointerCount; pointer++) {
+      plan(0, pointerAction(MotionEvent.ACTION_POINTER_DOWN, pointer),
+          pointer + 1, 0);
+    }
+
+    if (holdTime > 0) {
+      plan(holdTime, MotionEvent.ACTION_MOVE, pointerCount, 0);
+    }
+
+    for (int sample = 1; sample <= moveSamples; sample++) {
+      plan(holdTime + ((moveTime * sample) / moveSamples),
+          MotionEvent.ACTION_MOVE, pointerCount, (float) sample / moveSamples);
+    }
+
+    long upTime = getDuration();
+    if (restTime > 0) {
+      // Repeating the end points makes the velocity at the end zero.
+      plan(upTime, MotionEvent.ACTION_MOVE, pointerCount, 1);
+    }
+
+    for (int pointer = pointerCount - 1; pointer > 0; pointer--) {
+      plan(upTime, pointerAction(MotionEvent.ACTION_POINTER_UP, pointer),
+          pointer + 1, 1);
+    }
+    plan(upTime, MotionEvent.ACTION_UP, 1, 1);
+  }
+
+  /**
+   * Adds an event for the first {@code pointerCount} pointers, with each
+   * pointer the given fraction of the way along its stroke, to the end of the
+   * plan.
+   */
+  private void plan(
+      long timeOffset, int action, int pointerCount, float fraction) {
+    timeOffsets[plannedEvents] = timeOffset;
+    actions[plannedEvents] = action;
+    pointerCounts[plannedEvents] = pointerCount;
+    fractions[plannedEvents] = fraction;
+    plannedEvents++;
+  }
+
+  private static int pointerAction(int action, int pointerIndex) {
+    return action | (pointerIndex << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+  }
+
+  /**
+   * Returns a path for a single pointer.
+   */
+  public static GesturePath of(long holdTime, long moveTime, long restTime,
+      int startX, int startY, int endX, int endY) {
+    return new GesturePath(holdTime, moveTime, restTime,
+        ImmutableList.of(new Stroke(startX, startY, endX, endY)));
+  }
+
+  /**
+   * Returns the time in milliseconds from the first event to the last.
+   */
+  public long getDuration() {
+    return holdTime + moveTime + restTime;
+  }
+
+  /**
+   * Returns a new cursor over the events of this gesture, with times relative
+   * to the given down time. The events must be injected in order, each no
+   * earlier than its event time.
+   *
+   * @param downTime the time of the first event, in the time base of
+   *        {@code android.os.SystemClock.uptimeMillis()}
+   */
+  public Events events(long downTime) {
+    return new Events(downTime);
+  }
+
+  /**
+   * A cursor over the events of a gesture. Each event is obtained from the
+   * {@code MotionEvent} pool only when it is about to be injected, and the
+   * pointer holders are shared by all of the events, so that a gesture of any
+   * length holds at most one event at a time and allocates nothing per
+   * sample.
+   *
+   * <p>Instances of this class are not thread-safe.
+   */
+  public final class Events {
+    private final long downTime;
+    private final int[] pointerIds;
+    private final MotionEvent.PointerCoords[] pointerCoords;
+    private int next;
+
+    private Events(long downTime) {
+      this.downTime = downTime;
+      int pointerCount = strokes.size();
+      pointerIds = new int[pointerCount];
+      pointerCoords = new MotionEvent.PointerCoords[pointerCount];
+
+      for (int pointer = 0; pointer < pointerCount; pointer++) {
+        MotionEvent.PointerCoords coords = new MotionEvent.PointerCoords();
+        coords.pressure = 1.0f;
+        coords.size = 1.0f;
+        pointerIds[pointer] = pointer;
+        pointerCoords[pointer] = coords;
+      }
+    }
+
+    public boolean hasNext() {
+      return next < actions.length;
+    }
+
+    /**
+     * Returns the event time of the next event.
+     */
+    public long nextEventTime() {
+      return downTime + timeOffsets[next];
+    }
+
+    /**
+     * Obtains the next event from the pool. The caller must recycle it once
+     * it has been injected.
+     */
+    public MotionEvent obtainNext() {
+      int pointerCount = pointerCounts[next];
+      float fraction = fractions[next];
+
+      for (int pointer = 0; pointer < pointerCount; pointer++) {
+        Stroke stroke = strokes.get(pointer);
+        pointerCoords[pointer].x = stroke.xAt(fraction);
+        pointerCoords[pointer].y = stroke.yAt(fraction);
+      }
+
+      MotionEvent event = MotionEvent.obtain(downTime, nextEventTime(),
+          actions[next], pointerCount, pointerIds, pointerCoords, META_STATE,
+          PRECISION, PRECISION, DEVICE_ID, EDGE_FLAGS,
+          InputDevice.SOURCE_TOUCHSCREEN, FLAGS);
+      next++;
+      return event;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[gesture: hold %d ms, move %d ms, rest %d ms, %s]",
+        holdTime, moveTime, restTime, strokes);
+  }
+}
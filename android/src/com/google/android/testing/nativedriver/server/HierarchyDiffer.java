@@ -0,0 +1,286 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.android.testing.nativedriver.common.HierarchyDiffKeys;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Computes the differences between the current element hierarchy and an
+ * earlier version of it, so that a client which keeps a copy of the hierarchy
+ * only needs to receive what changed. The format of the result is described
+ * in {@link com.google.android.testing.nativedriver.common.HierarchyDiffKeys}.
+ *
+ * <p>Each element is given a node ID the first time it is seen, which stays
+ * the same for as long as the element's {@code View} exists. A new version
+ * number is assigned whenever a hierarchy is observed which differs from the
+ * previous one. The states of the last {@value #HISTORY_SIZE} versions are
+ * kept; a client asking for the differences from an older version gets the
+ * whole hierarchy instead.
+ *
+ * <p>Versions start over for each instance, so every result also carries the
+ * random epoch of the instance, which tells a client that its version came
+ * from another instance.
+ *
+ * <p>This class is thread-safe.
+ */
+public class HierarchyDiffer {
+  static final int HISTORY_SIZE = 8;
+
+  private final RClassReader rClassReader;
+  private final String epoch = UUID.randomUUID().toString();
+
+  // Keyed by View for ViewElements, since a View may be wrapped by more than
+  // one ViewElement over its lifetime.
+  private final Map<Object, Integer> nodeIds
+      = new MapMaker().weakKeys().makeMap();
+  private int lastNodeId;
+
+  private final Map<Long, Map<Integer, NodeState>> history
+      = Maps.newLinkedHashMap();
+  private long currentVersion;
+  @Nullable private HierarchySnapshot lastSnapshot;
+
+  public HierarchyDiffer(RClassReader rClassReader) {
+    this.rClassReader = rClassReader;
+  }
+
+  /**
+   * The state of one node which is sent to clients.
+   */
+  private static final class NodeState {
+    final int nodeId;
+    @Nullable final Integer parentId;
+    final int index;
+    final String className;
+    @Nullable final String androidId;
+    @Nullable final String literalId;
+    @Nullable final String text;
+    final List<Integer> bounds;
+    final boolean displayed;
+    final boolean enabled;
+    final boolean selected;
+
+    NodeState(int nodeId, @Nullable Integer parentId, int index,
+        String className, @Nullable String androidId,
+        @Nullable String literalId, @Nullable String text,
+        List<Integer> bounds, boolean displayed, boolean enabled,
+        boolean selected) {
+      this.nodeId = nodeId;
+      this.parentId = parentId;
+      this.index = index;
+      this.className = className;
+      this.androidId = androidId;
+      this.literalId = literalId;
+      this.text = text;
+      this.bounds = bounds;
+      this.displayed = displayed;
+      this.enabled = enabled;
+      this.selected = selected;
+    }
+
+    Map<String, Object> toJson() {
+      Map<String, Object> json = Maps.newLinkedHashMap();
+      json.put(HierarchyDiffKeys.NODE_ID, nodeId);
+      putIfNotNull(json, HierarchyDiffKeys.PARENT_ID, parentId);
+      json.put(HierarchyDiffKeys.INDEX, index);
+      json.put(HierarchyDiffKeys.CLASS, className);
+      putIfNotNull(json, HierarchyDiffKeys.ANDROID_ID, androidId);
+      putIfNotNull(json, HierarchyDiffKeys.LITERAL_ID, literalId);
+      putIfNotNull(json, HierarchyDiffKeys.TEXT, text);
+      json.put(HierarchyDiffKeys.BOUNDS, bounds);
+      json.put(HierarchyDiffKeys.DISPLAYED, displayed);
+      json.put(HierarchyDiffKeys.ENABLED, enabled);
+      json.put(HierarchyDiffKeys.SELECTED, selected);
+      return json;
+    }
+
+    private static void putIfNotNull(
+        Map<String, Object> json, String key, @Nullable Object value) {
+      if (value != null) {
+        json.put(key, value);
+      }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof NodeState)) {
+        return false;
+      }
+
+      NodeState state = (NodeState) other;
+      return (nodeId == state.nodeId)
+          && Objects.equal(parentId, state.parentId)
+          && (index == state.index)
+          && className.equals(state.className)
+          && Objects.equal(androidId, state.androidId)
+          && Objects.equal(literalId, state.literalId)
+          && Objects.equal(text, state.text)
+          && bounds.equals(state.bounds)
+          && (displayed == state.displayed)
+          && (enabled == state.enabled)
+          && (selected == state.selected);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(nodeId, parentId, index, className, androidId,
+          literalId, text, bounds, displayed, enabled, selected);
+    }
+  }
+
+  /**
+   * Returns the differences between the given snapshot and the hierarchy at
+   * version {@code since}.
+   *
+   * @param snapshot the current state of the hierarchy
+   * @param since a version returned by an earlier call, or zero to get the
+   *        whole hierarchy
+   */
+  public synchronized Map<String, Object> diff(
+      HierarchySnapshot snapshot, long since) {
+    Map<Integer, NodeState> current = observe(snapshot);
+    Map<Integer, NodeState> base = history.get(since);
+
+    List<Map<String, Object>> added = Lists.newArrayList();
+    List<Map<String, Object>> changed = Lists.newArrayList();
+    List<Integer> removed = Lists.newArrayList();
+
+    if (base != current) {
+      for (NodeState state : current.values()) {
+        NodeState oldState = (base == null) ? null : base.get(state.nodeId);
+
+        if (oldState == null) {
+          added.add(state.toJson());
+        } else if (!oldState.equals(state)) {
+          changed.add(state.toJson());
+        }
+      }
+
+      if (base != null) {
+        for (Integer nodeId : base.keySet()) {
+          if (!current.containsKey(nodeId)) {
+            removed.add(nodeId);
+          }
+        }
+      }
+    }
+
+    Map<String, Object> result = Maps.newLinkedHashMap();
+    result.put(HierarchyDiffKeys.EPOCH, epoch);
+    result.put(HierarchyDiffKeys.VERSION, currentVersion);
+    result.put(HierarchyDiffKeys.FULL, base == null);
+    result.put(HierarchyDiffKeys.ADDED, added);
+    result.put(HierarchyDiffKeys.CHANGED, changed);
+    result.put(HierarchyDiffKeys.REMOVED, removed);
+    return result;
+  }
+
+  /**
+   * Returns the node states of the given snapshot, and records them as a new
+   * version if they differ from the current version.
+   */
+  private Map<Integer, NodeState> observe(HierarchySnapshot snapshot) {
+    Map<Integer, NodeState> previous = history.get(currentVersion);
+
+    if (snapshot == lastSnapshot) {
+      return previous;
+    }
+
+    Map<Integer, NodeState> current = statesOf(snapshot);
+    lastSnapshot = snapshot;
+
+    if (current.equals(previous)) {
+      return previous;
+    }
+
+    history.put(++currentVersion, current);
+
+    Iterator<Long> oldest = history.keySet().iterator();
+    while (history.size() > HISTORY_SIZE) {
+      oldest.next();
+      oldest.remove();
+    }
+
+    return current;
+  }
+
+  private Map<Integer, NodeState> statesOf(HierarchySnapshot snapshot) {
+    Map<Integer, NodeState> states = Maps.newLinkedHashMap();
+    int[] nodeIdsByIndex = new int[snapshot.size()];
+    int[] childCounts = new int[snapshot.size()];
+    int windowCount = 0;
+
+    for (HierarchySnapshot.Node node : snapshot.getNodes()) {
+      int nodeId = nodeIdOf(node);
+      nodeIdsByIndex[node.getIndex()] = nodeId;
+
+      int parentIndex = node.getParentIndex();
+      Integer parentId;
+      int index;
+      if (parentIndex == HierarchySnapshot.NO_PARENT) {
+        parentId = null;
+        index = windowCount++;
+      } else {
+        parentId = nodeIdsByIndex[parentIndex];
+        index = childCounts[parentIndex]++;
+      }
+
+      states.put(nodeId, new NodeState(nodeId, parentId, index,
+          node.getElementClass().getName(),
+          describeAndroidId(node.getAndroidId()), node.getLiteralId(),
+          node.getText(),
+          ImmutableList.of(node.getLeft(), node.getTop(),
+              node.getLeft() + node.getWidth(),
+              node.getTop() + node.getHeight()),
+          node.isDisplayed(), node.isEnabled(), node.isSelected()));
+    }
+
+    return states;
+  }
+
+  private int nodeIdOf(HierarchySnapshot.Node node) {
+    AndroidNativeElement element = node.getElement();
+    Object key = (element instanceof ViewElement<?>)
+        ? ((ViewElement<?>) element).getView() : element;
+    Integer nodeId = nodeIds.get(key);
+
+    if (nodeId == null) {
+      nodeId = ++lastNodeId;
+      nodeIds.put(key, nodeId);
+    }
+
+    return nodeId;
+  }
+
+  @Nullable
+  private String describeAndroidId(@Nullable Integer androidId) {
+    return (androidId == null) ? null : rClassReader.describeId(androidId);
+  }
+}
@@ -0,0 +1,312 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable copy of the searchable state of every element in some
+ * {@link ElementSearchScope}. The state is read from the live elements in a
+ * single pass on the main application thread (see
+ * {@link HierarchySnapshotter}), after which it can be filtered on any thread
+ * without touching the {@code View}s again.
+ *
+ * <p>The nodes are stored in a flat list in depth-first pre-order, which is the
+ * same order in which the elements were returned by the recursive search that
+ * this class replaces. The descendants of the node at index {@code i} occupy
+ * the indices from {@code i + 1} up to, but not including,
+ * {@code getNode(i).getSubtreeEnd()}.
+ */
+public final class HierarchySnapshot {
+  /**
+   * The parent index of nodes that are top-level elements of the scope.
+   */
+  public static final int NO_PARENT = -1;
+
+  /**
+   * The state of a single element, copied when the snapshot was taken.
+   */
+  public static final class Node {
+    private final AndroidNativeElement element;
+    private final Class<?> elementClass;
+    private final int index;
+    @Nullable private final Node parent;
+    private final int depth;
+    private int subtreeEnd;
+    @Nullable private final Integer androidId;
+    @Nullable private final String literalId;
+    @Nullable private final String text;
+    private final boolean omittedFromFindResults;
+    private final boolean displayed;
+    private final boolean enabled;
+    private final boolean selected;
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+
+    Node(AndroidNativeElement element, Class<?> elementClass, int index,
+        @Nullable Node parent, @Nullable Integer androidId,
+        @Nullable String literalId, @Nullable String text,
+        boolean omittedFromFindResults, boolean displayed, boolean enabled,
+        boolean selected, int left, int top, int width, int height) {
+      this.element = element;
+      this.elementClass = elementClass;
+      this.index = index;
+      this.parent = parent;
+      this.depth = (parent == null) ? 0 : (parent.depth + 1);
+      this.subtreeEnd = index + 1;
+      this.androidId = androidId;
+      this.literalId = literalId;
+      this.text = text;
+      this.omittedFromFindResults = omittedFromFindResults;
+      this.displayed = displayed;
+      this.enabled = enabled;
+      this.selected = selected;
+      this.left = left;
+      this.top = top;
+      this.width = width;
+      this.height = height;
+    }
+
+    /**
+     * Returns the live element from which this node was copied. Only the
+     * copied state should be read when filtering; the element is returned to
+     * callers once it has been chosen as a find result.
+     */
+    public AndroidNativeElement getElement() {
+      return element;
+    }
+
+    /**
+     * Returns the class of the wrapped {@code View}, or the class of the
+     * element itself if it does not wrap a {@code View}.
+     */
+    public Class<?> getElementClass() {
+      return elementClass;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * Returns the index of the parent node, or {@link #NO_PARENT} if this node
+     * is a top-level element of the scope.
+     */
+    public int getParentIndex() {
+      return (parent == null) ? NO_PARENT : parent.index;
+    }
+
+    /**
+     * Returns the parent node, or {@code null} if this node is a top-level
+     * element of the scope.
+     */
+    @Nullable
+    public Node getParent() {
+      return parent;
+    }
+
+    /**
+     * Returns the number of ancestors this node has within the scope. The
+     * top-level elements have a depth of zero.
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    /**
+     * Returns the index just past the last descendant of this node.
+     */
+    public int getSubtreeEnd() {
+      return subtreeEnd;
+    }
+
+    /**
+     * @see AndroidNativeElement#getAndroidId()
+     */
+    @Nullable
+    public Integer getAndroidId() {
+      return androidId;
+    }
+
+    /**
+     * @see AndroidNativeElement#getLiteralId()
+     */
+    @Nullable
+    public String getLiteralId() {
+      return literalId;
+    }
+
+    @Nullable
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * @see AndroidNativeElement#shouldOmitFromFindResults()
+     */
+    public boolean isOmittedFromFindResults() {
+      return omittedFromFindResults;
+    }
+
+    public boolean isDisplayed() {
+      return displayed;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public boolean isSelected() {
+      return selected;
+    }
+
+    public int getLeft() {
+      return left;
+    }
+
+    public int getTop() {
+      return top;
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    public int getHeight() {
+      return height;
+    }
+
+    /**
+     * Indicates whether this node supports the given class, which is the
+     * semantic of {@link AndroidNativeElement#supportsClass(String)}.
+     * Elements that wrap {@code View}s are checked against the resolved class
+     * without any reflection. Other elements are asked directly.
+     *
+     * @param resolvedClass the class named {@code className}, or {@code null}
+     *        if no such class could be loaded
+     * @param className the full name of the class
+     */
+    public boolean supportsClass(
+        @Nullable Class<?> resolvedClass, String className) {
+      if (element instanceof ViewElement<?>) {
+        return (resolvedClass != null)
+            && resolvedClass.isAssignableFrom(elementClass);
+      }
+
+      return element.supportsClass(className);
+    }
+  }
+
+  private final List<Node> nodes;
+  @Nullable private volatile List<Node> breadthFirstNodes;
+  @Nullable private volatile TextIndex textIndex;
+
+  HierarchySnapshot(List<Node> nodes) {
+    this.nodes = ImmutableList.copyOf(nodes);
+  }
+
+  /**
+   * Returns all nodes in depth-first pre-order.
+   */
+  public List<Node> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns all nodes in the given order.
+   */
+  public List<Node> getNodes(TraversalOrder order) {
+    switch (order) {
+      case DEPTH_FIRST:
+        return nodes;
+      case BREADTH_FIRST:
+        return getBreadthFirstNodes();
+      default:
+        throw new IllegalArgumentException("Unknown order: " + order);
+    }
+  }
+
+  private List<Node> getBreadthFirstNodes() {
+    List<Node> result = breadthFirstNodes;
+
+    if (result == null) {
+      // A stable sort of the pre-order list by depth is the breadth-first
+      // order, since nodes on the same level keep their left-to-right order.
+      // Sort by counting the nodes on each level.
+      int maxDepth = 0;
+      for (Node node : nodes) {
+        maxDepth = Math.max(maxDepth, node.getDepth());
+      }
+
+      int[] levelStart = new int[maxDepth + 2];
+      for (Node node : nodes) {
+        levelStart[node.getDepth() + 1]++;
+      }
+      for (int depth = 1; depth < levelStart.length; depth++) {
+        levelStart[depth] += levelStart[depth - 1];
+      }
+
+      Node[] sorted = new Node[nodes.size()];
+      for (Node node : nodes) {
+        sorted[levelStart[node.getDepth()]++] = node;
+      }
+
+      result = ImmutableList.copyOf(sorted);
+      breadthFirstNodes = result;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns an index of the text of the nodes in this snapshot. The index is
+   * built by the first call, and shared by all later calls.
+   */
+  public TextIndex getTextIndex() {
+    TextIndex result = textIndex;
+
+    if (result == null) {
+      result = TextIndex.of(this);
+      textIndex = result;
+    }
+
+    return result;
+  }
+
+  public Node getNode(int index) {
+    return nodes.get(index);
+  }
+
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Records the end of the subtree of a node. Only called while the snapshot
+   * is being built.
+   */
+  static void setSubtreeEnd(Node node, int subtreeEnd) {
+    node.subtreeEnd = subtreeEnd;
+  }
+}
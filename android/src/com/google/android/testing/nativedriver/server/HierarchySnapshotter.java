@@ -0,0 +1,269 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.Point;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Takes {@link HierarchySnapshot}s of {@link ElementSearchScope}s. All of the
+ * elements in the scope are visited, and their state copied, in a single
+ * operation on the main application thread. This keeps the UI from changing
+ * halfway through a search, and means a find costs one hand-off to the main
+ * thread rather than one per property read.
+ *
+ * <p>The last snapshot of each scope is kept along with the
+ * {@link ViewTreeMonitor} version at the time it was taken. While the version
+ * does not change, the same snapshot is returned again without visiting the
+ * main thread, so repeated finds on a screen which is not changing are nearly
+ * free. Anything cached on the snapshot, such as its {@link TextIndex}, is
+ * reused too.
+ *
+ * <p>A search for a single element which finds no up-to-date snapshot uses
+ * {@link #captureUntil}, which stops visiting the main thread's hierarchy as
+ * soon as an element matches, rather than copying the whole scope.
+ */
+public class HierarchySnapshotter {
+  private final Runner runner;
+  private final ViewTreeMonitor monitor;
+
+  // Scopes are weak keys, which are compared by identity.
+  private final ConcurrentMap<ElementSearchScope, CachedSnapshot> cache
+      = new MapMaker().weakKeys().makeMap();
+
+  private static class CachedSnapshot {
+    final long version;
+    final HierarchySnapshot snapshot;
+
+    CachedSnapshot(long version, HierarchySnapshot snapshot) {
+      this.version = version;
+      this.snapshot = snapshot;
+    }
+  }
+
+  /**
+   * Creates a new instance which reads the element hierarchy using the given
+   * {@code Runner}. In production, this is a {@code Runner} which runs on the
+   * main application thread.
+   *
+   * @param monitor tells when a snapshot may be out of date. Every view tree
+   *        that is captured is watched by it.
+   */
+  public HierarchySnapshotter(Runner runner, ViewTreeMonitor monitor) {
+    this.runner = runner;
+    this.monitor = monitor;
+  }
+
+  public ViewTreeMonitor getMonitor() {
+    return monitor;
+  }
+
+  /**
+   * Takes a snapshot of every element in the given scope, not including the
+   * scope root itself. If nothing has changed since the last snapshot of the
+   * same scope, that snapshot is returned instead.
+   */
+  public HierarchySnapshot capture(ElementSearchScope scope) {
+    return captureUntil(scope, null);
+  }
+
+  /**
+   * Takes a snapshot of the elements in the given scope, in depth-first
+   * pre-order, up to and including the first element which matches
+   * {@code stopAt} and is not omitted from find results. If nothing has
+   * changed since the last complete snapshot of the same scope, that
+   * snapshot is returned instead. A snapshot which stopped early is not kept
+   * for later calls.
+   *
+   * @param stopAt the condition of the element to stop at, which is applied
+   *        on the main application thread, or {@code null} to capture every
+   *        element
+   */
+  public HierarchySnapshot captureUntil(ElementSearchScope scope,
+      @Nullable Predicate<HierarchySnapshot.Node> stopAt) {
+    if (scope instanceof RootSearchScope) {
+      monitor.checkTopLevelViews(
+          ((RootSearchScope) scope).getTopLevelViews());
+    }
+
+    // Read the version before capturing, so that a change made while the
+    // snapshot is being taken makes it out of date right away.
+    long version = monitor.getVersion();
+    CachedSnapshot cached = cache.get(scope);
+
+    if (cached != null && cached.version == version) {
+      return cached.snapshot;
+    }
+
+    HierarchySnapshot snapshot = runner.run(doCapture(scope, stopAt));
+
+    if (stoppedAt(snapshot, stopAt)) {
+      return snapshot;
+    }
+
+    if (isWatched(snapshot)) {
+      cache.put(scope, new CachedSnapshot(version, snapshot));
+    } else {
+      cache.remove(scope);
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Indicates whether the snapshot may have stopped before the end of the
+   * scope. The last element of such a snapshot is the one it stopped at.
+   */
+  private static boolean stoppedAt(HierarchySnapshot snapshot,
+      @Nullable Predicate<HierarchySnapshot.Node> stopAt) {
+    if (stopAt == null || snapshot.size() == 0) {
+      return false;
+    }
+
+    return isStop(snapshot.getNode(snapshot.size() - 1), stopAt);
+  }
+
+  private static boolean isStop(HierarchySnapshot.Node node,
+      Predicate<HierarchySnapshot.Node> stopAt) {
+    return !node.isOmittedFromFindResults() && stopAt.apply(node);
+  }
+
+  /**
+   * Indicates whether every element in the snapshot is in a view tree which is
+   * watched by the monitor, so that the snapshot can be reused until the
+   * monitor reports a change.
+   */
+  private static boolean isWatched(HierarchySnapshot snapshot) {
+    for (HierarchySnapshot.Node node : snapshot.getNodes()) {
+      if (!(node.getElement() instanceof ViewElement<?>)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private Function<Void, HierarchySnapshot> doCapture(
+      final ElementSearchScope scope,
+      @Nullable final Predicate<HierarchySnapshot.Node> stopAt) {
+    return new Function<Void, HierarchySnapshot>() {
+      @Override
+      public HierarchySnapshot apply(Void ignoredArgument) {
+        return new HierarchySnapshot(collectNodes(scope, monitor, stopAt));
+      }
+    };
+  }
+
+  /**
+   * The children of one element which have not been visited yet.
+   */
+  private static class PendingChildren {
+    final Iterator<? extends AndroidNativeElement> children;
+    @Nullable final HierarchySnapshot.Node parent;
+
+    PendingChildren(Iterable<? extends AndroidNativeElement> children,
+        @Nullable HierarchySnapshot.Node parent) {
+      this.children = children.iterator();
+      this.parent = parent;
+    }
+  }
+
+  /**
+   * Visits the elements in the scope in depth-first pre-order, until one
+   * matches {@code stopAt}. An explicit stack is used instead of recursion,
+   * so that very deep layouts cannot overflow the stack of the main
+   * application thread.
+   */
+  private static List<HierarchySnapshot.Node> collectNodes(
+      ElementSearchScope scope, ViewTreeMonitor monitor,
+      @Nullable Predicate<HierarchySnapshot.Node> stopAt) {
+    List<HierarchySnapshot.Node> nodes = Lists.newArrayList();
+    LinkedList<PendingChildren> stack = Lists.newLinkedList();
+    stack.addFirst(new PendingChildren(scope.getChildren(), null));
+
+    while (!stack.isEmpty()) {
+      PendingChildren pending = stack.getFirst();
+
+      if (!pending.children.hasNext()) {
+        stack.removeFirst();
+
+        if (pending.parent != null) {
+          HierarchySnapshot.setSubtreeEnd(pending.parent, nodes.size());
+        }
+        continue;
+      }
+
+      AndroidNativeElement element = pending.children.next();
+
+      if (pending.parent == null && element instanceof ViewElement<?>) {
+        monitor.watch(((ViewElement<?>) element).getView());
+      }
+
+      HierarchySnapshot.Node node
+          = newNode(element, nodes.size(), pending.parent);
+      nodes.add(node);
+
+      if (stopAt != null && isStop(node, stopAt)) {
+        // The subtrees of the open ancestors end here, as far as this
+        // snapshot knows.
+        for (PendingChildren open : stack) {
+          if (open.parent != null) {
+            HierarchySnapshot.setSubtreeEnd(open.parent, nodes.size());
+          }
+        }
+        break;
+      }
+
+      stack.addFirst(new PendingChildren(element.getChildren(), node));
+    }
+
+    return nodes;
+  }
+
+  /**
+   * Copies the state of one element. This must be called on the main
+   * application thread.
+   */
+  static HierarchySnapshot.Node newNode(AndroidNativeElement element,
+      int index, @Nullable HierarchySnapshot.Node parent) {
+    Class<?> elementClass = (element instanceof ViewElement<?>)
+        ? ((ViewElement<?>) element).getView().getClass()
+        : element.getClass();
+    Point location = element.getLocation();
+    Dimension size = element.getSize();
+
+    return new HierarchySnapshot.Node(element, elementClass, index, parent,
+        element.getAndroidId(), element.getLiteralId(),
+        element.getText(), element.shouldOmitFromFindResults(),
+        element.isDisplayed(), element.isEnabled(), element.isSelected(),
+        location.getX(), location.getY(),
+        size.getWidth(), size.getHeight());
+  }
+}
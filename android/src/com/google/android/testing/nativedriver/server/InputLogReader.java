@@ -0,0 +1,259 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import android.view.MotionEvent;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the records of a log written by an {@link InputLogWriter}, one at a
+ * time. The fields of the current record are read from the getters of the
+ * reader, which reuses its arrays from one record to the next, so that
+ * reading a long log allocates almost nothing.
+ *
+ * <p>Times are returned relative to the event time of the first record,
+ * which is zero.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class InputLogReader implements Closeable {
+  private final DataInputStream in;
+
+  private int recordType;
+  private long eventTime;
+  private long downTime;
+  private int action;
+  private int metaState;
+  private int edgeFlags;
+  private int source;
+  private int keyCode;
+  private int repeatCount;
+  private int scanCode;
+  private int flags;
+  private int pointerCount;
+  private int sampleCount;
+  private int[] pointerIds = new int[0];
+  private long[] sampleTimes = new long[0];
+  private MotionEvent.PointerCoords[][] samples
+      = new MotionEvent.PointerCoords[0][];
+
+  /**
+   * Creates a reader of the log in the given stream, and reads its header.
+   * The stream is buffered by the reader.
+   *
+   * @throws IOException if the stream does not start with the header of a
+   *         supported version of the log format
+   */
+  public InputLogReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+
+    if (this.in.readInt() != InputLogWriter.MAGIC) {
+      throw new IOException("Not an input log.");
+    }
+    int version = this.in.readUnsignedByte();
+    if (version != InputLogWriter.VERSION) {
+      throw new IOException("Unsupported input log version: " + version);
+    }
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return {@code false} if the end of the log has been reached
+   * @throws IOException if the log cannot be read or is corrupt
+   */
+  public boolean next() throws IOException {
+    int type = in.read();
+    if (type == -1) {
+      return false;
+    }
+
+    long delta = readVarLong();
+    eventTime += (delta >>> 1) ^ -(delta & 1);
+    downTime = eventTime - readVarLong();
+    action = readVarInt();
+
+    if (type == InputLogWriter.MOTION_RECORD) {
+      readMotion();
+    } else if (type == InputLogWriter.KEY_RECORD) {
+      keyCode = readVarInt();
+      repeatCount = readVarInt();
+      metaState = readVarInt();
+      scanCode = readVarInt();
+      flags = readVarInt();
+      source = readVarInt();
+    } else {
+      throw new IOException("Unknown input log record type: " + type);
+    }
+
+    recordType = type;
+    return true;
+  }
+
+  private void readMotion() throws IOException {
+    metaState = readVarInt();
+    edgeFlags = readVarInt();
+    source = readVarInt();
+
+    pointerCount = readVarInt();
+    if (pointerIds.length < pointerCount) {
+      pointerIds = new int[pointerCount];
+    }
+    for (int pointer = 0; pointer < pointerCount; pointer++) {
+      pointerIds[pointer] = readVarInt();
+    }
+
+    sampleCount = readVarInt();
+    ensureSampleCapacity();
+    for (int sample = 0; sample < sampleCount; sample++) {
+      sampleTimes[sample] = eventTime - readVarLong();
+      for (int pointer = 0; pointer < pointerCount; pointer++) {
+        MotionEvent.PointerCoords coords = samples[sample][pointer];
+        coords.x = in.readFloat();
+        coords.y = in.readFloat();
+        coords.pressure = in.readFloat();
+        coords.size = in.readFloat();
+      }
+    }
+  }
+
+  private void ensureSampleCapacity() {
+    if ((samples.length >= sampleCount)
+        && ((sampleCount == 0) || (samples[0].length >= pointerCount))) {
+      return;
+    }
+
+    int sampleCapacity = Math.max(sampleCount, samples.length);
+    int pointerCapacity = Math.max(pointerCount,
+        (samples.length == 0) ? 0 : samples[0].length);
+    sampleTimes = new long[sampleCapacity];
+    samples = new MotionEvent.PointerCoords[sampleCapacity][pointerCapacity];
+    for (MotionEvent.PointerCoords[] sample : samples) {
+      for (int pointer = 0; pointer < pointerCapacity; pointer++) {
+        sample[pointer] = new MotionEvent.PointerCoords();
+      }
+    }
+  }
+
+  private long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed number in input log.");
+  }
+
+  private int readVarInt() throws IOException {
+    return (int) readVarLong();
+  }
+
+  /**
+   * Returns whether the current record is of a {@code MotionEvent}; if not,
+   * it is of a {@code KeyEvent}.
+   */
+  public boolean isMotion() {
+    return recordType == InputLogWriter.MOTION_RECORD;
+  }
+
+  public long getEventTime() {
+    return eventTime;
+  }
+
+  public long getDownTime() {
+    return downTime;
+  }
+
+  public int getAction() {
+    return action;
+  }
+
+  public int getMetaState() {
+    return metaState;
+  }
+
+  public int getSource() {
+    return source;
+  }
+
+  public int getEdgeFlags() {
+    return edgeFlags;
+  }
+
+  public int getKeyCode() {
+    return keyCode;
+  }
+
+  public int getRepeatCount() {
+    return repeatCount;
+  }
+
+  public int getScanCode() {
+    return scanCode;
+  }
+
+  public int getFlags() {
+    return flags;
+  }
+
+  public int getPointerCount() {
+    return pointerCount;
+  }
+
+  /**
+   * Returns the pointer IDs of the current motion record. Only the first
+   * {@link #getPointerCount()} elements are meaningful.
+   */
+  public int[] getPointerIds() {
+    return pointerIds;
+  }
+
+  /**
+   * Returns the number of samples of the current motion record, which is one
+   * more than the size of its history.
+   */
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  public long getSampleTime(int sample) {
+    return sampleTimes[sample];
+  }
+
+  /**
+   * Returns the pointer coordinates of a sample of the current motion
+   * record. Only the first {@link #getPointerCount()} elements are
+   * meaningful.
+   */
+  public MotionEvent.PointerCoords[] getSample(int sample) {
+    return samples[sample];
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
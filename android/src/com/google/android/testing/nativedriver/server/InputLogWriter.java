@@ -0,0 +1,152 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes input events to a compact binary log, which can be replayed by an
+ * {@link InputReplayer}. Each event is written to the stream as soon as it is
+ * recorded, so the length of a recording is not limited by memory.
+ *
+ * <p>The log starts with the magic number {@code NDIL} and a format version
+ * byte, followed by one record per event. Integers are written as unsigned
+ * variable-length quantities of 7 bits per byte, least significant group
+ * first. Times are in milliseconds, and each record starts with its event
+ * time as a zigzag-encoded difference from the event time of the previous
+ * record, so that the log keeps the original timing without absolute
+ * times. A record is one of:
+ *
+ * <ul>
+ *   <li>{@code 'M'}, time, event time minus down time, action, meta state,
+ *       edge flags, source, pointer count, the ID of each pointer, sample
+ *       count, and for each sample, oldest first: the event time minus the
+ *       time of the sample, then the x, y, pressure and size of each pointer
+ *       as floats. The last sample is the current position of the event,
+ *       and the others are its history.
+ *   <li>{@code 'K'}, time, event time minus down time, action, key code,
+ *       repeat count, meta state, scan code, flags and source.
+ * </ul>
+ *
+ * <p>This class is not thread-safe.
+ */
+public class InputLogWriter implements Closeable {
+  static final int MAGIC = 0x4E44494C;
+  static final int VERSION = 1;
+  static final int MOTION_RECORD = 'M';
+  static final int KEY_RECORD = 'K';
+
+  private final DataOutputStream out;
+  private final MotionEvent.PointerCoords coords
+      = new MotionEvent.PointerCoords();
+  private long lastEventTime;
+  private boolean hasWrittenEvent;
+
+  /**
+   * Creates a writer which writes the log to the given stream, starting with
+   * its header. The stream is buffered by the writer.
+   */
+  public InputLogWriter(OutputStream out) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.out.writeInt(MAGIC);
+    this.out.writeByte(VERSION);
+  }
+
+  public void write(MotionEvent event) throws IOException {
+    out.writeByte(MOTION_RECORD);
+    writeTimes(event.getEventTime(), event.getDownTime());
+    writeVarLong(event.getAction());
+    writeVarLong(event.getMetaState());
+    writeVarLong(event.getEdgeFlags());
+    writeVarLong(event.getSource());
+
+    int pointerCount = event.getPointerCount();
+    writeVarLong(pointerCount);
+    for (int pointer = 0; pointer < pointerCount; pointer++) {
+      writeVarLong(event.getPointerId(pointer));
+    }
+
+    int historySize = event.getHistorySize();
+    writeVarLong(historySize + 1);
+    for (int sample = 0; sample < historySize; sample++) {
+      writeVarLong(
+          event.getEventTime() - event.getHistoricalEventTime(sample));
+      for (int pointer = 0; pointer < pointerCount; pointer++) {
+        event.getHistoricalPointerCoords(pointer, sample, coords);
+        writeCoords();
+      }
+    }
+
+    writeVarLong(0);
+    for (int pointer = 0; pointer < pointerCount; pointer++) {
+      event.getPointerCoords(pointer, coords);
+      writeCoords();
+    }
+  }
+
+  public void write(KeyEvent event) throws IOException {
+    out.writeByte(KEY_RECORD);
+    writeTimes(event.getEventTime(), event.getDownTime());
+    writeVarLong(event.getAction());
+    writeVarLong(event.getKeyCode());
+    writeVarLong(event.getRepeatCount());
+    writeVarLong(event.getMetaState());
+    writeVarLong(event.getScanCode());
+    writeVarLong(event.getFlags());
+    writeVarLong(event.getSource());
+  }
+
+  private void writeTimes(long eventTime, long downTime) throws IOException {
+    long delta = hasWrittenEvent ? (eventTime - lastEventTime) : 0;
+    writeVarLong((delta << 1) ^ (delta >> 63));
+    writeVarLong(eventTime - downTime);
+    lastEventTime = eventTime;
+    hasWrittenEvent = true;
+  }
+
+  private void writeCoords() throws IOException {
+    out.writeFloat(coords.x);
+    out.writeFloat(coords.y);
+    out.writeFloat(coords.pressure);
+    out.writeFloat(coords.size);
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
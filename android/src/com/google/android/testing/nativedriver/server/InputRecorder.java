@@ -0,0 +1,244 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.android.testing.nativedriver.common.RecordsInput;
+import com.google.common.base.Preconditions;
+
+import android.util.Log;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.Window;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.annotation.Nullable;
+
+/**
+ * Records input events to an {@link InputLogWriter} while a recording is in
+ * progress. Events come from one of two sources. The
+ * {@link ServerInstrumentation} passes every event it injects as
+ * {@link Source#INSTRUMENTATION}. Windows which have been attached with
+ * {@link #attachTo(Window)} pass every touch and key event dispatched to
+ * them as {@link Source#APPLICATION}. Only the events of the source being
+ * recorded are written.
+ *
+ * <p>This class is thread-safe.
+ */
+public class InputRecorder {
+  private static final String LOG_TAG = InputRecorder.class.getName();
+
+  /**
+   * The sources of input events.
+   */
+  public enum Source {
+    INSTRUMENTATION(RecordsInput.SOURCE_INSTRUMENTATION),
+    APPLICATION(RecordsInput.SOURCE_APPLICATION);
+
+    private final String name;
+
+    private Source(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Returns the source with the given wire protocol name.
+     *
+     * @throws IllegalArgumentException if there is no such source
+     */
+    public static Source forName(String name) {
+      Preconditions.checkNotNull(name);
+
+      for (Source source : values()) {
+        if (source.name.equals(name)) {
+          return source;
+        }
+      }
+
+      throw new IllegalArgumentException("Unknown input source: " + name);
+    }
+  }
+
+  private final Object lock = new Object();
+
+  // Read without the lock, so that the input paths pay nothing while no
+  // recording is in progress.
+  @Nullable private volatile Source recordedSource;
+  @Nullable private InputLogWriter writer;
+  @Nullable private IOException failure;
+  private int eventCount;
+
+  /**
+   * Starts writing the events of the given source to a stream.
+   *
+   * @throws WebDriverException if a recording is already in progress
+   */
+  public void start(OutputStream out, Source source) throws IOException {
+    synchronized (lock) {
+      if (writer != null) {
+        throw new WebDriverException("Input is already being recorded.");
+      }
+
+      writer = new InputLogWriter(out);
+      failure = null;
+      eventCount = 0;
+      recordedSource = source;
+    }
+  }
+
+  /**
+   * Stops the recording in progress and closes its stream.
+   *
+   * @return the number of events recorded
+   * @throws WebDriverException if no recording is in progress
+   * @throws IOException if an event could not be written or the stream could
+   *         not be closed
+   */
+  public int stop() throws IOException {
+    synchronized (lock) {
+      if (writer == null) {
+        throw new WebDriverException("Input is not being recorded.");
+      }
+
+      recordedSource = null;
+      try {
+        writer.close();
+      } finally {
+        writer = null;
+      }
+
+      if (failure != null) {
+        throw failure;
+      }
+      return eventCount;
+    }
+  }
+
+  /**
+   * Returns whether a recording is in progress.
+   */
+  public boolean isRecording() {
+    return recordedSource != null;
+  }
+
+  /**
+   * Returns whether the events of the given source are being recorded.
+   */
+  public boolean isRecording(Source source) {
+    return recordedSource == source;
+  }
+
+  public void record(MotionEvent event, Source source) {
+    if (recordedSource != source) {
+      return;
+    }
+
+    synchronized (lock) {
+      if ((recordedSource == source) && (failure == null)) {
+        try {
+          writer.write(event);
+          eventCount++;
+        } catch (IOException exception) {
+          recordFailure(exception);
+        }
+      }
+    }
+  }
+
+  public void record(KeyEvent event, Source source) {
+    if (recordedSource != source) {
+      return;
+    }
+
+    synchronized (lock) {
+      if ((recordedSource == source) && (failure == null)) {
+        try {
+          writer.write(event);
+          eventCount++;
+        } catch (IOException exception) {
+          recordFailure(exception);
+        }
+      }
+    }
+  }
+
+  // The failure is reported when the recording is stopped, since the input
+  // paths which record events should not fail because of it.
+  private void recordFailure(IOException exception) {
+    Log.w(LOG_TAG, "Could not record input event.", exception);
+    failure = exception;
+  }
+
+  /**
+   * Makes the given window pass the touch and key events dispatched to it to
+   * this recorder as {@link Source#APPLICATION}. This replaces the
+   * {@code Window.Callback} of the window with a proxy of it, and does
+   * nothing if the window is already attached. It must be called on the main
+   * application thread.
+   */
+  public void attachTo(Window window) {
+    Window.Callback callback = window.getCallback();
+    if ((callback == null)
+        || (Proxy.isProxyClass(callback.getClass())
+            && (Proxy.getInvocationHandler(callback)
+                instanceof RecordingCallback))) {
+      return;
+    }
+
+    // A proxy rather than a subclass, so that the methods added to
+    // Window.Callback by later versions of Android are passed on as well.
+    window.setCallback((Window.Callback) Proxy.newProxyInstance(
+        InputRecorder.class.getClassLoader(),
+        new Class<?>[] {Window.Callback.class},
+        new RecordingCallback(callback)));
+  }
+
+  private class RecordingCallback implements InvocationHandler {
+    private final Window.Callback delegate;
+
+    RecordingCallback(Window.Callback delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      if ((args != null) && (args.length == 1)) {
+        if ((args[0] instanceof MotionEvent)
+            && method.getName().equals("dispatchTouchEvent")) {
+          record((MotionEvent) args[0], Source.APPLICATION);
+        } else if (args[0] instanceof KeyEvent) {
+          record((KeyEvent) args[0], Source.APPLICATION);
+        }
+      }
+
+      try {
+        return method.invoke(delegate, args);
+      } catch (InvocationTargetException exception) {
+        throw exception.getCause();
+      }
+    }
+  }
+}
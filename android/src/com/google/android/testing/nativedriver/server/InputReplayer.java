@@ -0,0 +1,217 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.android.testing.nativedriver.common.RecordsInput;
+import com.google.common.base.Preconditions;
+
+import android.app.Instrumentation;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.Clock;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Injects the events of a log written by an {@link InputLogWriter}. The log
+ * is read one record at a time while it is replayed, so logs of any length
+ * can be replayed.
+ *
+ * <p>At a speed above zero, each event is injected when the time since the
+ * first event, divided by the speed, has passed, and is given that time as
+ * its event time. At {@link RecordsInput#MAXIMUM_SPEED}, each event is
+ * injected as soon as the previous one has been handled, and is given the
+ * current time. Either way, the down time of an event is the event time
+ * given to the event which started its gesture or key press, so the
+ * application sees consistent gestures.
+ *
+ * <p>As with the gestures of {@link AndroidNativeTouch}, the whole replay is
+ * one command of the {@link InputSynchronizer}, in which the events are
+ * treated as one event, so the application is at most waited on to be idle
+ * before the first event and after the last one.
+ */
+public class InputReplayer {
+  private static final float PRECISION = 1.0f;
+  private static final int DEVICE_ID = 0;
+  private static final int FLAGS = 0;
+
+  private final Instrumentation instrumentation;
+  private final InputSynchronizer inputSynchronizer;
+  private final Clock clock;
+
+  // The recorded and replayed down times of the last gesture and key press,
+  // so that later events of the same gesture or key press get the same down
+  // time as their first event.
+  private long recordedMotionDownTime;
+  private long replayedMotionDownTime;
+  private long recordedKeyDownTime;
+  private long replayedKeyDownTime;
+
+  public InputReplayer(Instrumentation instrumentation,
+      InputSynchronizer inputSynchronizer, Clock clock) {
+    this.instrumentation = Preconditions.checkNotNull(instrumentation);
+    this.inputSynchronizer = Preconditions.checkNotNull(inputSynchronizer);
+    this.clock = Preconditions.checkNotNull(clock);
+  }
+
+  public static InputReplayer withDefaults(Instrumentation instrumentation,
+      InputSynchronizer inputSynchronizer) {
+    return new InputReplayer(
+        instrumentation, inputSynchronizer, new AndroidSystemClock());
+  }
+
+  /**
+   * Replays the log in the given stream, and closes the stream, even if the
+   * log cannot be replayed.
+   *
+   * @param speed how many times faster than recorded to replay the log, or
+   *        {@link RecordsInput#MAXIMUM_SPEED}
+   * @return the number of events injected
+   * @throws IOException if the log cannot be read or is corrupt
+   */
+  public synchronized int replay(InputStream log, double speed)
+      throws IOException {
+    int eventCount = 0;
+
+    // The stream is closed whatever happens, including a bad header.
+    try {
+      Preconditions.checkArgument(speed >= 0, "Negative speed: %s", speed);
+      InputLogReader reader = new InputLogReader(log);
+
+      inputSynchronizer.beginCommand();
+      try {
+        inputSynchronizer.beforeEvent();
+        long startTime = clock.now();
+        recordedMotionDownTime = Long.MIN_VALUE;
+        recordedKeyDownTime = Long.MIN_VALUE;
+
+        while (reader.next()) {
+          long eventTime;
+          if (speed == RecordsInput.MAXIMUM_SPEED) {
+            eventTime = clock.now();
+          } else {
+            eventTime = startTime + (long) (reader.getEventTime() / speed);
+            sleepUntil(eventTime);
+          }
+
+          double timeScale
+              = (speed == RecordsInput.MAXIMUM_SPEED) ? 1 : speed;
+          if (reader.isMotion()) {
+            injectMotion(reader, eventTime, timeScale);
+          } else {
+            injectKey(reader, eventTime, timeScale);
+          }
+          eventCount++;
+        }
+      } finally {
+        inputSynchronizer.endCommand();
+      }
+    } finally {
+      log.close();
+    }
+
+    return eventCount;
+  }
+
+  private void injectMotion(
+      InputLogReader reader, long eventTime, double timeScale) {
+    long downTime;
+    if (reader.getDownTime() == recordedMotionDownTime) {
+      downTime = replayedMotionDownTime;
+    } else {
+      downTime = replayedDownTime(reader, eventTime, timeScale);
+      recordedMotionDownTime = reader.getDownTime();
+      replayedMotionDownTime = downTime;
+    }
+
+    int lastSample = reader.getSampleCount() - 1;
+    MotionEvent event = MotionEvent.obtain(downTime,
+        sampleTime(reader, 0, eventTime, timeScale), reader.getAction(),
+        reader.getPointerCount(), reader.getPointerIds(), reader.getSample(0),
+        reader.getMetaState(), PRECISION, PRECISION,
+        DEVICE_ID, reader.getEdgeFlags(),
+        reader.getSource(), FLAGS);
+
+    for (int sample = 1; sample <= lastSample; sample++) {
+      event.addBatch(sampleTime(reader, sample, eventTime, timeScale),
+          reader.getSample(sample), reader.getMetaState());
+    }
+
+    try {
+      instrumentation.sendPointerSync(event);
+    } catch (SecurityException exception) {
+      throw new WebDriverException(exception);
+    } finally {
+      event.recycle();
+    }
+  }
+
+  /**
+   * Returns the down time for the current event which is as far before its
+   * event time as when it was recorded, scaled like the times of the events.
+   */
+  private static long replayedDownTime(
+      InputLogReader reader, long eventTime, double timeScale) {
+    return eventTime
+        - (long) ((reader.getEventTime() - reader.getDownTime()) / timeScale);
+  }
+
+  private static long sampleTime(InputLogReader reader, int sample,
+      long eventTime, double timeScale) {
+    return eventTime - (long) ((reader.getEventTime()
+        - reader.getSampleTime(sample)) / timeScale);
+  }
+
+  private void injectKey(
+      InputLogReader reader, long eventTime, double timeScale) {
+    long downTime;
+    if (reader.getDownTime() == recordedKeyDownTime) {
+      downTime = replayedKeyDownTime;
+    } else {
+      downTime = replayedDownTime(reader, eventTime, timeScale);
+      recordedKeyDownTime = reader.getDownTime();
+      replayedKeyDownTime = downTime;
+    }
+
+    try {
+      instrumentation.sendKeySync(new KeyEvent(downTime, eventTime,
+          reader.getAction(), reader.getKeyCode(), reader.getRepeatCount(),
+          reader.getMetaState(), DEVICE_ID,
+          reader.getScanCode(), reader.getFlags(), reader.getSource()));
+    } catch (SecurityException exception) {
+      throw new WebDriverException(exception);
+    }
+  }
+
+  private void sleepUntil(long time) {
+    long delay = time - clock.now();
+    if (delay <= 0) {
+      return;
+    }
+
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(exception);
+    }
+  }
+}
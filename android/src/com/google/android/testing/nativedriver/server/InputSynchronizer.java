@@ -0,0 +1,166 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.android.testing.nativedriver.common.AndroidCapabilities;
+import com.google.common.base.Preconditions;
+
+import android.app.Instrumentation;
+
+/**
+ * Decides when injected input waits for the application to be idle. Waiting
+ * before each event makes the application see each event only once it has
+ * handled the previous one, like a slow user, but costs a round trip to the
+ * main thread per event. The {@link Policy} trades this fidelity for
+ * throughput.
+ *
+ * <p>Input is injected by commands, such as a tap or the typing of a string,
+ * which call {@link #beginCommand()} before their first event,
+ * {@link #beforeEvent()} before each event which is not part of a timed
+ * gesture or of a typed string, and {@link #endCommand()} after their last
+ * event. Commands may be nested on the thread running them, as the steps of
+ * an action sequence are; only the outermost command of the thread waits at
+ * its beginning and end. Under the default policy, the waits are exactly
+ * those made before policies were introduced: one before each pointer event
+ * and one before each typed string. The other policies wait once at the end
+ * of the outermost command instead, so that the next command sees the effect
+ * of its input.
+ *
+ * <p>This class is thread-safe.
+ */
+public class InputSynchronizer {
+  /**
+   * The policies, each with the value it has in the
+   * {@link AndroidCapabilities#INPUT_SYNC} capability.
+   */
+  public enum Policy {
+    /**
+     * Waits before every event, and not at the end of a command. This is the
+     * default.
+     */
+    PER_EVENT(AndroidCapabilities.INPUT_SYNC_PER_EVENT),
+
+    /** Waits at the beginning and at the end of each command. */
+    PER_COMMAND(AndroidCapabilities.INPUT_SYNC_PER_COMMAND),
+
+    /** Waits only at the end of each command. */
+    NONE(AndroidCapabilities.INPUT_SYNC_NONE);
+
+    private final String name;
+
+    private Policy(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Returns the name of the policy used in the capability.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the policy with the given capability name.
+     *
+     * @throws IllegalArgumentException if there is no such policy
+     */
+    public static Policy forName(String name) {
+      Preconditions.checkNotNull(name);
+
+      for (Policy policy : values()) {
+        if (policy.name.equals(name)) {
+          return policy;
+        }
+      }
+
+      throw new IllegalArgumentException("Unknown input sync policy: " + name);
+    }
+  }
+
+  private final Instrumentation instrumentation;
+  private volatile Policy policy = Policy.PER_EVENT;
+
+  // The number of commands in progress on each thread. Commands of different
+  // requests run on different threads, so they must not nest in each other.
+  private final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+    @Override
+    protected int[] initialValue() {
+      return new int[1];
+    }
+  };
+
+  public InputSynchronizer(Instrumentation instrumentation) {
+    this.instrumentation = Preconditions.checkNotNull(instrumentation);
+  }
+
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Sets the policy, which is {@link Policy#PER_EVENT} by default.
+   */
+  public void setPolicy(Policy policy) {
+    this.policy = Preconditions.checkNotNull(policy);
+  }
+
+  /**
+   * Called before the first event of a command. Every call must be matched by
+   * a call to {@link #endCommand()}, usually in a {@code finally} block.
+   */
+  public void beginCommand() {
+    if (enter() && (policy == Policy.PER_COMMAND)) {
+      instrumentation.waitForIdleSync();
+    }
+  }
+
+  /**
+   * Called before an event of a command, other than the events of a gesture
+   * injected at precise times.
+   */
+  public void beforeEvent() {
+    if (policy == Policy.PER_EVENT) {
+      instrumentation.waitForIdleSync();
+    }
+  }
+
+  /**
+   * Called after the last event of a command.
+   */
+  public void endCommand() {
+    if (exit() && (policy != Policy.PER_EVENT)) {
+      instrumentation.waitForIdleSync();
+    }
+  }
+
+  // Returns whether the command is the outermost one.
+  private boolean enter() {
+    return depth.get()[0]++ == 0;
+  }
+
+  private boolean exit() {
+    int[] commands = depth.get();
+    Preconditions.checkState(commands[0] > 0, "No command in progress.");
+    return --commands[0] == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "[input sync: " + policy.name + "]";
+  }
+}
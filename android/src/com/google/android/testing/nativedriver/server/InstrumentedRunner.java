@@ -0,0 +1,133 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@code Runner} which records the queue delay and execution time of every
+ * operation it hands to another {@code Runner} in a {@link RunnerMetrics}.
+ *
+ * <p>Each operation is tagged with the place it comes from. For the
+ * anonymous {@code Runnable}s and {@code Function}s used throughout the
+ * server, this is the class and method which create them, such as
+ * {@code ViewElement.doRequestFocus}. Other operations are tagged with their
+ * class name, and {@link #run(String, Runnable)} takes an explicit tag.
+ */
+public class InstrumentedRunner extends Runner {
+  private final Runner delegate;
+  private final RunnerMetrics metrics;
+  private final Map<Class<?>, String> tagsByClass
+      = new MapMaker().weakKeys().makeMap();
+
+  public InstrumentedRunner(Runner delegate, RunnerMetrics metrics) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+    this.metrics = Preconditions.checkNotNull(metrics);
+  }
+
+  public RunnerMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void run(Runnable runnable) {
+    run(tagOf(runnable), runnable);
+  }
+
+  @Override
+  @Nullable
+  public <F, T> T run(
+      final Function<F, T> function, @Nullable final F argument) {
+    final Object[] output = new Object[1];
+
+    run(tagOf(function), new Runnable() {
+      @Override
+      public void run() {
+        output[0] = function.apply(argument);
+      }
+    });
+
+    @SuppressWarnings("unchecked")
+    T result = (T) output[0];
+    return result;
+  }
+
+  /**
+   * Runs an operation, recording its latencies under the given tag. The
+   * latencies are recorded when the operation finishes, even if the
+   * delegate has stopped waiting for it. Operations which never start are
+   * not recorded.
+   */
+  public void run(final String tag, final Runnable runnable) {
+    final long handedOff = System.nanoTime();
+
+    delegate.run(new Runnable() {
+      @Override
+      public void run() {
+        long started = System.nanoTime();
+        try {
+          runnable.run();
+        } finally {
+          metrics.record(tag, started - handedOff, System.nanoTime() - started);
+        }
+      }
+
+      @Override
+      public String toString() {
+        return tag;
+      }
+    });
+  }
+
+  private String tagOf(Object operation) {
+    Class<?> operationClass = operation.getClass();
+    String tag = tagsByClass.get(operationClass);
+
+    if (tag == null) {
+      tag = describe(operationClass);
+      tagsByClass.put(operationClass, tag);
+    }
+
+    return tag;
+  }
+
+  private static String describe(Class<?> operationClass) {
+    Class<?> enclosingClass = operationClass.getEnclosingClass();
+
+    if (!operationClass.isAnonymousClass() || enclosingClass == null) {
+      return shortName(operationClass);
+    }
+
+    Method enclosingMethod = operationClass.getEnclosingMethod();
+    return (enclosingMethod == null)
+        ? shortName(enclosingClass)
+        : shortName(enclosingClass) + "." + enclosingMethod.getName();
+  }
+
+  private static String shortName(Class<?> type) {
+    String name = type.getName();
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.android.testing.nativedriver.common.AndroidKeys;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import android.os.SystemClock;
+import android.view.KeyCharacterMap;
+import android.view.KeyEvent;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.util.List;
+
+/**
+ * Turns a {@code CharSequence} into the list of {@code KeyEvent}s which type
+ * it. Characters in {@link AndroidKeys} become a down and up event of their
+ * key code. Other characters become the events the built-in keyboard would
+ * produce for them, including any meta keys, as found by
+ * {@code KeyCharacterMap.getEvents}.
+ *
+ * <p>The events of each ASCII character are looked up once and kept in a
+ * table, so compiling text made of ASCII characters and {@code AndroidKeys}
+ * does no searching. The compiled events are templates: their times must be
+ * updated before they are injected, which {@link #withCurrentTime(KeyEvent)}
+ * does.
+ *
+ * <p>This class is thread-safe.
+ */
+public class KeyEventCompiler {
+  private static final int ASCII_SIZE = 128;
+
+  // Filled in lazily. A race only makes two threads compute the same events.
+  private final KeyEvent[][] asciiEvents = new KeyEvent[ASCII_SIZE][];
+  private volatile KeyCharacterMap keyCharacterMap;
+
+  /**
+   * Returns the events which type {@code text}, in order.
+   *
+   * @throws WebDriverException if a character cannot be typed on the
+   *         built-in keyboard
+   */
+  public List<KeyEvent> compile(CharSequence text) {
+    List<KeyEvent> events = Lists.newArrayListWithCapacity(text.length() * 2);
+
+    for (int i = 0; i < text.length(); i++) {
+      for (KeyEvent event : eventsFor(text.charAt(i))) {
+        events.add(event);
+      }
+    }
+
+    return ImmutableList.copyOf(events);
+  }
+
+  private KeyEvent[] eventsFor(char character) {
+    AndroidKeys key = AndroidKeys.forChar(character);
+    if (key != null) {
+      return keyDownUp(key.getAndroidKeyCode());
+    }
+
+    if (character < ASCII_SIZE) {
+      KeyEvent[] events = asciiEvents[character];
+      if (events == null) {
+        events = lookUpEvents(character);
+        asciiEvents[character] = events;
+      }
+      return events;
+    }
+
+    return lookUpEvents(character);
+  }
+
+  private static KeyEvent[] keyDownUp(int keyCode) {
+    return new KeyEvent[] {
+        new KeyEvent(KeyEvent.ACTION_DOWN, keyCode),
+        new KeyEvent(KeyEvent.ACTION_UP, keyCode)};
+  }
+
+  private KeyEvent[] lookUpEvents(char character) {
+    KeyEvent[] events
+        = getKeyCharacterMap().getEvents(new char[] {character});
+
+    if (events == null) {
+      throw new WebDriverException(String.format(
+          "Character '%s' (U+%04X) cannot be typed on the built-in keyboard.",
+          character, (int) character));
+    }
+
+    return events;
+  }
+
+  private KeyCharacterMap getKeyCharacterMap() {
+    KeyCharacterMap map = keyCharacterMap;
+
+    if (map == null) {
+      map = KeyCharacterMap.load(KeyCharacterMap.BUILT_IN_KEYBOARD);
+      keyCharacterMap = map;
+    }
+
+    return map;
+  }
+
+  /**
+   * Returns a copy of a compiled event with its event time set to now, ready
+   * to be injected.
+   */
+  public static KeyEvent withCurrentTime(KeyEvent template) {
+    return KeyEvent.changeTimeRepeat(template, SystemClock.uptimeMillis(), 0);
+  }
+}
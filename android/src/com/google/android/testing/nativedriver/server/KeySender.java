@@ -29,6 +29,8 @@ import org.openqa.selenium.Keyboard;
 import org.openqa.selenium.Keys;
 import org.openqa.selenium.WebDriverException;
 
+import java.util.List;
+
 /**
  * Provides a method to send a string to an application under test. Keys are
  * sent using an {@code Instrumentation} instance. The strings may contain any
@@ -61,16 +63,30 @@ public class KeySender {
   }
 
   private final Instrumentation instrumentation;
+  private final InputSynchronizer inputSynchronizer;
   private final KeyboardImpl keyboardImpl;
+  private final KeyEventCompiler keyEventCompiler = new KeyEventCompiler();
   
   /**
    * Creates a new instance which sends keys to the given
-   * {@code Instrumentation}.
+   * {@code Instrumentation}, waiting for the application to be idle as
+   * decided by the given {@code InputSynchronizer}.
    */
-  public KeySender(Instrumentation instrumentation) {
+  public KeySender(Instrumentation instrumentation,
+      InputSynchronizer inputSynchronizer) {
     this.instrumentation = Preconditions.checkNotNull(instrumentation);
+    this.inputSynchronizer = Preconditions.checkNotNull(inputSynchronizer);
     this.keyboardImpl = new KeyboardImpl();
   }
+
+  /**
+   * Creates a new instance which sends keys to the given
+   * {@code Instrumentation} with the default {@code InputSynchronizer}
+   * policy.
+   */
+  public KeySender(Instrumentation instrumentation) {
+    this(instrumentation, new InputSynchronizer(instrumentation));
+  }
   
   /**
    * Returns a {@code Keyboard} object which sends key using this
@@ -80,15 +96,6 @@ public class KeySender {
     return keyboardImpl;
   }
   
-  private static int indexOfSpecialKey(CharSequence string, int startIndex) {
-    for (int i = startIndex; i < string.length(); i++) {
-      if (AndroidKeys.hasAndroidKeyEvent(string.charAt(i))) {
-        return i;
-      }
-    }
-    return string.length();
-  }
-
   /**
    * Sends a single key event to the {@code Instrumentation} for a given 
    * character.
@@ -97,12 +104,15 @@ public class KeySender {
    * @param keyCode character representing key to press, release, etc.
    */
   public void sendKeyEvent(int action, char keyCode) {
-    instrumentation.waitForIdleSync();
+    inputSynchronizer.beginCommand();
     try {
+      inputSynchronizer.beforeEvent();
       instrumentation.sendKeySync(
           new KeyEvent(action, AndroidKeys.keyCodeFor(keyCode)));
     } catch (SecurityException exception) {
       throw new WebDriverException(exception);
+    } finally {
+      inputSynchronizer.endCommand();
     }
   }
   
@@ -119,34 +129,29 @@ public class KeySender {
   }
   
   /**
-   * Sends key events to the {@code Instrumentation}. This method will send
-   * a portion of the given {@code CharSequence} as a single {@code String} if
-   * the portion does not contain any special keys.
+   * Sends key events to the {@code Instrumentation}. The whole
+   * {@code CharSequence} is first compiled into key events by a
+   * {@link KeyEventCompiler}, so that a character which cannot be typed is
+   * reported before any key is sent. The events are then injected one after
+   * the other. The string counts as a single event for the
+   * {@code InputSynchronizer}, so that the application is not waited for
+   * between its keys.
    *
    * @param string the keys to send to the {@code Instrumentation}.
    */
   public void send(CharSequence string) {
-    int currentIndex = 0;
-    
-    instrumentation.waitForIdleSync();
-    
-    while (currentIndex < string.length()) {
-      char currentCharacter = string.charAt(currentIndex);
-      if (AndroidKeys.hasAndroidKeyEvent(currentCharacter)) {
-        // The next character is special and must be sent individually
-        instrumentation.sendKeyDownUpSync(
-            AndroidKeys.keyCodeFor(currentCharacter));
-        currentIndex++;
-      } else {
-        // There is at least one "normal" character, that is a character
-        // represented by a plain Unicode character that can be sent with
-        // sendStringSync. So send as many such consecutive normal characters
-        // as possible in a single String.
-        int nextSpecialKey = indexOfSpecialKey(string, currentIndex);
-        instrumentation.sendStringSync(
-            string.subSequence(currentIndex, nextSpecialKey).toString());
-        currentIndex = nextSpecialKey;
+    List<KeyEvent> events = keyEventCompiler.compile(string);
+
+    inputSynchronizer.beginCommand();
+    try {
+      inputSynchronizer.beforeEvent();
+      for (KeyEvent event : events) {
+        instrumentation.sendKeySync(KeyEventCompiler.withCurrentTime(event));
       }
+    } catch (SecurityException exception) {
+      throw new WebDriverException(exception);
+    } finally {
+      inputSynchronizer.endCommand();
     }
   }
 }
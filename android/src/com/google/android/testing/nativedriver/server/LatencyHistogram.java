@@ -0,0 +1,124 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A histogram of durations with buckets whose bounds are powers of two
+ * microseconds, from 1 us up to about 16 s, plus one bucket for anything
+ * longer. Percentiles are estimated as the upper bound of the bucket they
+ * fall in, so they are accurate to within a factor of two.
+ *
+ * <p>This class is thread-safe.
+ */
+public class LatencyHistogram {
+  /** The number of bounded buckets; bucket {@code i} holds up to 2^i us. */
+  static final int BOUNDED_BUCKETS = 25;
+
+  private final long[] counts = new long[BOUNDED_BUCKETS + 1];
+  private long count;
+  private long totalNanos;
+  private long maxNanos;
+
+  /**
+   * Records one duration.
+   */
+  public synchronized void record(long nanos) {
+    counts[bucketOf(nanos)]++;
+    count++;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  private static int bucketOf(long nanos) {
+    long micros = Math.max(1, (nanos + 999) / 1000);
+    // The index of the smallest power of two which is at least micros.
+    int bucket = 64 - Long.numberOfLeadingZeros(micros - 1);
+    return Math.min(bucket, BOUNDED_BUCKETS);
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the upper bound in microseconds of the bucket which holds the
+   * given percentile, -1 if that is the unbounded bucket, or zero if nothing
+   * was recorded.
+   *
+   * @param percentile a number from 0 to 100
+   */
+  public synchronized long getPercentileMicros(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+
+    for (int bucket = 0; bucket < BOUNDED_BUCKETS; bucket++) {
+      seen += counts[bucket];
+      if (seen >= Math.max(rank, 1)) {
+        return 1L << bucket;
+      }
+    }
+
+    return -1;
+  }
+
+  public synchronized void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    totalNanos = 0;
+    maxNanos = 0;
+  }
+
+  /**
+   * Returns the histogram as a map suitable for sending as JSON. Times are in
+   * microseconds, and {@code buckets} lists the non-empty buckets as pairs
+   * of upper bound and count, with an upper bound of -1 for the unbounded
+   * bucket.
+   */
+  public synchronized Map<String, Object> toJson() {
+    Map<String, Object> json = Maps.newLinkedHashMap();
+    json.put("count", count);
+    json.put("meanMicros", (count == 0) ? 0 : totalNanos / count / 1000);
+    json.put("maxMicros", maxNanos / 1000);
+    json.put("p50Micros", getPercentileMicros(50));
+    json.put("p90Micros", getPercentileMicros(90));
+    json.put("p99Micros", getPercentileMicros(99));
+
+    List<List<Long>> buckets = Lists.newArrayList();
+    for (int bucket = 0; bucket <= BOUNDED_BUCKETS; bucket++) {
+      if (counts[bucket] > 0) {
+        long bound = (bucket < BOUNDED_BUCKETS) ? (1L << bucket) : -1;
+        buckets.add(ImmutableList.of(bound, counts[bucket]));
+      }
+    }
+    json.put("buckets", buckets);
+
+    return json;
+  }
+}
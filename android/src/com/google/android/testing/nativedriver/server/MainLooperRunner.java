@@ -0,0 +1,165 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Preconditions;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs operations on the main application thread by posting them to its
+ * looper. Unlike {@link OnMainSyncRunner}, which waits for as long as the
+ * main thread takes, each operation has a deadline: if the main thread is
+ * hung, for instance because the application under test is not responding,
+ * the caller gets an exception with a dump of the main thread stack and the
+ * server thread is free to serve other requests.
+ *
+ * <p>The deadline is set when the runner is created. Every posted operation
+ * is also given to a {@link MainThreadWatchdog}, which reports it if it runs
+ * over its budget, even if its caller has stopped waiting.
+ *
+ * <p>Operations requested on the main thread itself are run immediately.
+ */
+public class MainLooperRunner extends Runner {
+  /**
+   * The default deadline, in milliseconds. This is longer than the time after
+   * which Android reports an application as not responding.
+   */
+  public static final long DEFAULT_DEADLINE = 20000;
+
+  /**
+   * The default watchdog budget, in milliseconds. This is the time after
+   * which Android reports an application as not responding to input.
+   */
+  public static final long DEFAULT_BUDGET = 5000;
+
+  private final Handler mainHandler;
+  private final MainThreadWatchdog watchdog;
+  private final long deadlineInMillis;
+  private final long budgetInMillis;
+
+  public MainLooperRunner(MainThreadWatchdog watchdog) {
+    this(watchdog, DEFAULT_DEADLINE, DEFAULT_BUDGET);
+  }
+
+  /**
+   * @param watchdog the watchdog which is told of every posted operation
+   * @param deadlineInMillis how long {@link #run(Runnable)} waits for an
+   *        operation, in milliseconds
+   * @param budgetInMillis how long an operation may take before the watchdog
+   *        reports it, in milliseconds
+   */
+  public MainLooperRunner(MainThreadWatchdog watchdog, long deadlineInMillis,
+      long budgetInMillis) {
+    this.mainHandler = new Handler(Looper.getMainLooper());
+    this.watchdog = Preconditions.checkNotNull(watchdog);
+    this.deadlineInMillis = deadlineInMillis;
+    this.budgetInMillis = budgetInMillis;
+  }
+
+  public MainThreadWatchdog getWatchdog() {
+    return watchdog;
+  }
+
+  /**
+   * Runs an operation on the main thread, waiting for at most the deadline.
+   * If the operation has not started by then, it is cancelled.
+   *
+   * @throws WebDriverException if the operation does not finish in time
+   */
+  @Override
+  public void run(final Runnable runnable) {
+    Future<Void> result = submit(new Callable<Void>() {
+      @Override
+      public Void call() {
+        runnable.run();
+        return null;
+      }
+
+      @Override
+      public String toString() {
+        return "Main thread operation " + runnable;
+      }
+    });
+
+    await(result);
+  }
+
+  /**
+   * Posts an operation to the main thread and returns its pending result
+   * without waiting for it.
+   */
+  private <T> Future<T> submit(Callable<T> operation) {
+    FutureTask<T> task = new FutureTask<T>(operation);
+
+    if (isOnMainThread()) {
+      task.run();
+      return task;
+    }
+
+    if (!mainHandler.post(task)) {
+      throw new WebDriverException(
+          "The main looper of the application has quit");
+    }
+    watchdog.watch(operation, task, budgetInMillis);
+    return task;
+  }
+
+  /**
+   * Waits for the result of an operation returned by
+   * {@link #submit(Callable)}, rethrowing any exception it threw.
+   */
+  private <T> T await(Future<T> result) {
+    try {
+      return result.get(deadlineInMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException exception) {
+      // Drop the operation if the main thread has not got to it yet.
+      result.cancel(false);
+      throw new WebDriverException(String.format(
+          "The main application thread did not finish an operation within %d"
+          + " ms. It may be hung. Main thread stack:%n%s",
+          deadlineInMillis,
+          MainThreadWatchdog.dumpMainThreadStack()), exception);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(exception);
+    } catch (ExecutionException exception) {
+      Throwable cause = exception.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new WebDriverException(cause);
+    }
+  }
+
+  private static boolean isOnMainThread() {
+    return Looper.myLooper() == Looper.getMainLooper();
+  }
+}
@@ -0,0 +1,118 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports operations on the main application thread which run for longer
+ * than their budget. Each report is logged with a dump of the stack of the
+ * main thread, which shows where the application under test is stuck, and
+ * the most recent reports are kept so they can be served while the main
+ * thread is still busy.
+ *
+ * <p>This class is thread-safe.
+ */
+public class MainThreadWatchdog {
+  private static final String LOG_TAG = MainThreadWatchdog.class.getName();
+  private static final int MAX_REPORTS = 16;
+
+  private final ScheduledExecutorService timer
+      = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "MainThreadWatchdog");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  // Guarded by itself.
+  private final LinkedList<String> reports = Lists.newLinkedList();
+
+  /**
+   * Starts watching an operation which has been handed to the main thread.
+   * If it has not finished when {@code budgetInMillis} has passed, a report
+   * is made.
+   *
+   * @param description describes the operation in the report. Its
+   *        {@code toString} is only called when a report is made, so it can
+   *        name the part of the operation which is running at that time.
+   * @param operation the pending result of the operation
+   */
+  public void watch(final Object description, final Future<?> operation,
+      final long budgetInMillis) {
+    timer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        if (!operation.isDone()) {
+          report(String.format(
+              "%s has not finished after %d ms. Main thread stack:%n%s",
+              description, budgetInMillis, dumpMainThreadStack()));
+        }
+      }
+    }, budgetInMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void report(String report) {
+    Log.w(LOG_TAG, report);
+
+    synchronized (reports) {
+      reports.addLast(report);
+      if (reports.size() > MAX_REPORTS) {
+        reports.removeFirst();
+      }
+    }
+  }
+
+  /**
+   * Returns the most recent reports, oldest first.
+   */
+  public List<String> getReports() {
+    synchronized (reports) {
+      return ImmutableList.copyOf(reports);
+    }
+  }
+
+  /**
+   * Returns the current stack of the main application thread, one frame per
+   * line.
+   */
+  public static String dumpMainThreadStack() {
+    StringBuilder dump = new StringBuilder();
+
+    for (StackTraceElement frame
+        : Looper.getMainLooper().getThread().getStackTrace()) {
+      dump.append("\tat ").append(frame).append('\n');
+    }
+
+    return dump.toString();
+  }
+}
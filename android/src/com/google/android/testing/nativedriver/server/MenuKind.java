@@ -63,33 +63,24 @@ public enum MenuKind {
     @Override
     protected boolean invoke(
         ElementContext context, Activity activity, int itemId, View view) {
-      return context.getOnMainSyncRunner().run(requestFocus(view))
-          && context.getInstrumentation()
-              .invokeContextMenuAction(activity, itemId, 0);
+      return context.getInstrumentation()
+          .invokeContextMenuAction(activity, itemId, 0);
     }
-  };
 
-  /**
-   * Creates a {@code Function} to request focus for the specified view. This
-   * {@code Function} should always be run on the main application thread.
-   *
-   * @param view the view for which the {@code Function} will request focus
-   * @return a {@code Function} that requests focus and returns {@code true} if
-   *         it was successful
-   */
-  private static Function<Void, Boolean> requestFocus(final View view) {
-    return new Function<Void, Boolean>() {
-      @Override
-      public Boolean apply(Void ignoredArgument) {
-        return view.requestFocus();
-      }
-    };
-  }
+    /**
+     * Requests focus for the view whose context menu is used.
+     */
+    @Override
+    protected boolean prepare(View view) {
+      return view.requestFocus();
+    }
+  };
 
   /**
    * Creates a {@code Function} to confirm the currently-focused activity
-   * contains the specified view. This {@code Function} should always be run on
-   * the main application thread.
+   * contains the specified view, and to prepare the view for the menu to be
+   * invoked. This {@code Function} should always be run on the main
+   * application thread, so that both steps take a single hand-off.
    *
    * @param context the {@code ElementContext} to use to get the
    *        currently-focused activity and analyze the view hierarchy.
@@ -98,7 +89,7 @@ public enum MenuKind {
    *         a reference to the activity if successful, {@code null} if
    *         otherwise
    */
-  private static Function<Void, Activity> confirmFocusedActivity(
+  private Function<Void, Activity> confirmFocusedActivity(
       final ElementContext context, final View view) {
     return new Function<Void, Activity>() {
       @Override
@@ -107,6 +98,7 @@ public enum MenuKind {
 
         return
             context.getViewHierarchyAnalyzer().viewIsInActivity(view, activity)
+                && prepare(view)
                 ? activity : null;
       }
     };
@@ -147,4 +139,16 @@ public enum MenuKind {
    */
   protected abstract boolean invoke(ElementContext context,
       Activity activity, int itemId, View view);
+
+  /**
+   * Prepares the view associated with the menu before a menu item is
+   * invoked. This is called on the main application thread, once the
+   * activity containing the view is known to have focus.
+   *
+   * @param view the {@code View} associated with the menu
+   * @return {@code true} if the menu item may be invoked
+   */
+  protected boolean prepare(View view) {
+    return true;
+  }
 }
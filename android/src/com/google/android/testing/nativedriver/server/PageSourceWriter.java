@@ -0,0 +1,149 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes a {@link HierarchySnapshot} as XML. This is the page source of
+ * Android NativeDriver. Each element is a {@code node} tag nested in the tag
+ * of its parent, with these attributes:
+ *
+ * <ul>
+ *   <li>{@code class}: the full name of the {@code View} class
+ *   <li>{@code id}: the symbolic Android ID, such as {@code id/button}, or
+ *   {@code #} followed by the number if the ID is not in an {@code R} class.
+ *   Omitted if the element has no Android ID.
+ *   <li>{@code literal-id}: the literal ID, if any
+ *   <li>{@code text}: the text, if any
+ *   <li>{@code bounds}: the rectangle the element occupies, in the form
+ *   {@code [left,top][right,bottom]}
+ *   <li>{@code displayed}, {@code enabled} and {@code selected}
+ *   <li>{@code window}: the index of the top-level element, which is the root
+ *   of a window, that contains the element
+ * </ul>
+ *
+ * <p>The XML is written to the {@code Writer} one element at a time as the
+ * snapshot is traversed, so the XML text is never held in memory as a
+ * whole. The snapshot is, though, so memory use still grows with the number
+ * of elements.
+ */
+public class PageSourceWriter {
+  private static final String NODE_TAG = "node";
+  private static final String ROOT_TAG = "hierarchy";
+
+  private final RClassReader rClassReader;
+
+  public PageSourceWriter(RClassReader rClassReader) {
+    this.rClassReader = rClassReader;
+  }
+
+  /**
+   * Writes the snapshot as an XML document.
+   */
+  public void write(HierarchySnapshot snapshot, Writer out)
+      throws IOException {
+    XmlSerializer serializer = Xml.newSerializer();
+    serializer.setOutput(out);
+    serializer.startDocument("UTF-8", true);
+    serializer.startTag(null, ROOT_TAG);
+
+    int openNodes = 0;
+    int window = -1;
+
+    for (HierarchySnapshot.Node node : snapshot.getNodes()) {
+      // Close the tags of the previous nodes which are not ancestors of this
+      // one. In pre-order, those are the open nodes at this depth or deeper.
+      for (; openNodes > node.getDepth(); openNodes--) {
+        serializer.endTag(null, NODE_TAG);
+      }
+
+      if (node.getParentIndex() == HierarchySnapshot.NO_PARENT) {
+        window++;
+      }
+
+      serializer.startTag(null, NODE_TAG);
+      writeAttributes(serializer, node, window);
+      openNodes++;
+    }
+
+    for (; openNodes > 0; openNodes--) {
+      serializer.endTag(null, NODE_TAG);
+    }
+
+    serializer.endTag(null, ROOT_TAG);
+    serializer.endDocument();
+    serializer.flush();
+  }
+
+  private void writeAttributes(XmlSerializer serializer,
+      HierarchySnapshot.Node node, int window) throws IOException {
+    serializer.attribute(null, "class", node.getElementClass().getName());
+    writeIfNotNull(serializer, "id", describeAndroidId(node.getAndroidId()));
+    writeIfNotNull(serializer, "literal-id", node.getLiteralId());
+    writeIfNotNull(serializer, "text", node.getText());
+    serializer.attribute(null, "bounds", String.format("[%d,%d][%d,%d]",
+        node.getLeft(), node.getTop(),
+        node.getLeft() + node.getWidth(), node.getTop() + node.getHeight()));
+    serializer.attribute(null, "displayed", String.valueOf(node.isDisplayed()));
+    serializer.attribute(null, "enabled", String.valueOf(node.isEnabled()));
+    serializer.attribute(null, "selected", String.valueOf(node.isSelected()));
+    serializer.attribute(null, "window", String.valueOf(window));
+  }
+
+  @Nullable
+  private String describeAndroidId(@Nullable Integer androidId) {
+    return (androidId == null) ? null : rClassReader.describeId(androidId);
+  }
+
+  private static void writeIfNotNull(XmlSerializer serializer, String name,
+      @Nullable String value) throws IOException {
+    if (value != null) {
+      serializer.attribute(null, name, withoutControlCharacters(value));
+    }
+  }
+
+  /**
+   * Replaces the characters which may not appear in XML 1.0 with
+   * {@code U+FFFD}. The serializer does not escape them.
+   */
+  private static String withoutControlCharacters(String value) {
+    StringBuilder result = null;
+
+    for (int i = 0; i < value.length(); i++) {
+      char character = value.charAt(i);
+
+      if (character < ' ' && character != '\t' && character != '\n'
+          && character != '\r') {
+        if (result == null) {
+          result = new StringBuilder(value);
+        }
+        result.setCharAt(i, '\uFFFD');
+      }
+    }
+
+    return (result == null) ? value : result.toString();
+  }
+}
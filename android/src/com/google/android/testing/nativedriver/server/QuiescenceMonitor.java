@@ -0,0 +1,208 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+import android.app.Instrumentation;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.animation.Animation;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tells whether the UI has settled. {@code Instrumentation.waitForIdleSync}
+ * only tells that the main message queue has drained, which it also does
+ * between the frames of an animation and before a posted layout pass. The UI
+ * is quiet when all of the following are true:
+ *
+ * <ul>
+ *   <li>The main looper has gone idle since the last change reported by the
+ *       {@link ViewTreeMonitor}.</li>
+ *   <li>No window has a layout pending.</li>
+ *   <li>No view in any window has a view animation which has started but not
+ *       ended.</li>
+ * </ul>
+ *
+ * <p>The wait for the main looper to go idle is bounded, and the checks are
+ * run with the {@code Runner} given to the constructor, so a hung main
+ * thread makes the UI not quiet instead of blocking the caller.
+ *
+ * <p>Use {@link AndroidWait#untilQuiet(QuiescenceMonitor)} to wait until the
+ * UI is quiet.
+ */
+public class QuiescenceMonitor {
+  /**
+   * The default longest time in milliseconds {@link #isQuiet()} waits for
+   * the main looper to go idle.
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT = 100;
+
+  private static final long NOT_IDLE = -1;
+
+  private final Instrumentation instrumentation;
+  private final Runner onMainSyncRunner;
+  private final ViewTreeMonitor viewTreeMonitor;
+  private final WindowListProvider windowListProvider;
+
+  // The version of the view tree monitor when the main looper last went
+  // idle. Written on the main application thread.
+  private volatile long idleVersion = NOT_IDLE;
+
+  // Counted down when the main looper next goes idle. A wait which times out
+  // leaves it pending, and later waits reuse it rather than adding another
+  // idle handler for each attempt. Guarded by idleLock.
+  private final Object idleLock = new Object();
+  @Nullable private CountDownLatch pendingIdle;
+
+  private final Function<Void, Boolean> checkQuiet
+      = new Function<Void, Boolean>() {
+        @Override
+        public Boolean apply(Void ignored) {
+          return isQuietOnMainThread();
+        }
+      };
+
+  /**
+   * @param onMainSyncRunner runs the checks on the main application thread.
+   *        In production, this is the runner of the {@link ElementContext},
+   *        which has a deadline and reports hung operations.
+   */
+  public QuiescenceMonitor(Instrumentation instrumentation,
+      Runner onMainSyncRunner, ViewTreeMonitor viewTreeMonitor,
+      WindowListProvider windowListProvider) {
+    this.instrumentation = instrumentation;
+    this.onMainSyncRunner = onMainSyncRunner;
+    this.viewTreeMonitor = viewTreeMonitor;
+    this.windowListProvider = windowListProvider;
+  }
+
+  /**
+   * Waits for at most {@link #DEFAULT_IDLE_TIMEOUT} milliseconds for the main
+   * looper to go idle, and then returns whether the UI is quiet.
+   */
+  public boolean isQuiet() {
+    return isQuiet(DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Waits for the main looper to go idle, and then returns whether the UI is
+   * quiet. This must not be called on the main application thread.
+   *
+   * @param idleTimeoutInMillis the longest time to wait for the main looper
+   *        to go idle. If it does not, the UI is not quiet.
+   */
+  public boolean isQuiet(long idleTimeoutInMillis) {
+    if (!awaitIdle(idleTimeoutInMillis)) {
+      return false;
+    }
+
+    return Boolean.TRUE.equals(onMainSyncRunner.run(checkQuiet));
+  }
+
+  private boolean awaitIdle(long timeoutInMillis) {
+    CountDownLatch idle;
+
+    synchronized (idleLock) {
+      if (pendingIdle == null || pendingIdle.getCount() == 0) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        instrumentation.waitForIdle(new Runnable() {
+          @Override
+          public void run() {
+            idleVersion = viewTreeMonitor.getVersion();
+            latch.countDown();
+          }
+        });
+        pendingIdle = latch;
+      }
+      idle = pendingIdle;
+    }
+
+    try {
+      return idle.await(timeoutInMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(exception);
+    }
+  }
+
+  private boolean isQuietOnMainThread() {
+    View[] roots = windowListProvider.getTopLevelViews();
+
+    // Changes to trees which are not watched yet would not change the
+    // version, so watch them before comparing it.
+    for (View root : roots) {
+      viewTreeMonitor.watch(root);
+    }
+
+    if (idleVersion != viewTreeMonitor.getVersion()) {
+      return false;
+    }
+
+    for (View root : roots) {
+      ViewParent viewRoot = root.getParent();
+
+      if (root.isLayoutRequested()
+          || (viewRoot != null && viewRoot.isLayoutRequested())
+          || isAnimating(root)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns whether any view in the tree has a running animation. An
+   * explicit stack is used instead of recursion, so that very deep layouts
+   * cannot overflow the stack of the main application thread.
+   */
+  private static boolean isAnimating(View root) {
+    LinkedList<View> pending = Lists.newLinkedList();
+    pending.addFirst(root);
+
+    while (!pending.isEmpty()) {
+      View view = pending.removeFirst();
+      Animation animation = view.getAnimation();
+
+      if (animation != null && animation.hasStarted()
+          && !animation.hasEnded()) {
+        return true;
+      }
+
+      if (view instanceof ViewGroup) {
+        ViewGroup group = (ViewGroup) view;
+
+        for (int i = 0; i < group.getChildCount(); i++) {
+          pending.addFirst(group.getChildAt(i));
+        }
+      }
+    }
+
+    return false;
+  }
+}
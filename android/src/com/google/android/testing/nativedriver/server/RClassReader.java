@@ -18,8 +18,15 @@ limitations under the License.
 package com.google.android.testing.nativedriver.server;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -35,10 +42,33 @@ import javax.annotation.Nullable;
  * than one R class in sequence. The value is returned from the first R class in
  * which the value is found.
  *
+ * <p>The fields of each inner class are read through reflection only once, the
+ * first time the inner class is searched. The result is kept in an index which
+ * maps names to values and values back to names, so later lookups, including
+ * lookups of names which do not exist, do not use reflection at all.
+ *
  * @author Matt DeVore
  */
 public class RClassReader {
   private final List<String> rClassNames;
+  private final ConcurrentMap<String, InnerClassIndex> indexes
+      = new MapMaker().makeMap();
+
+  /**
+   * The fields of one inner class, such as {@code id}, merged across all R
+   * classes. When more than one R class defines the same name, or more than
+   * one name has the same value, the first R class wins.
+   */
+  private static class InnerClassIndex {
+    private final Map<String, Integer> valuesByName;
+    private final Map<Integer, String> namesByValue;
+
+    InnerClassIndex(
+        Map<String, Integer> valuesByName, Map<Integer, String> namesByValue) {
+      this.valuesByName = ImmutableMap.copyOf(valuesByName);
+      this.namesByValue = ImmutableMap.copyOf(namesByValue);
+    }
+  }
 
   /**
    * Constructs a new instance which reads the fields of the inner classes of
@@ -66,42 +96,100 @@ public class RClassReader {
    */
   @Nullable
   public Integer getRField(String innerClass, String fieldName) {
-    for (String rClassName : rClassNames) {
-      String fullClassName = rClassName + "$" + innerClass;
-
-      Integer fieldValue = getRFieldFromClass(fullClassName, fieldName);
+    return getIndex(innerClass).valuesByName.get(fieldName);
+  }
 
-      if (fieldValue != null) {
-        return fieldValue;
-      }
-    }
+  /**
+   * Finds the name of the field in the given inner class which has the given
+   * value. This is the reverse of {@link #getRField}, and is useful for
+   * showing symbolic names in messages.
+   *
+   * @param innerClass the inner class to search, for instance "id".
+   * @param value the value of the field, for instance {@code 0x7f050001}
+   * @return the name of the field, or {@code null} if no R class has a field
+   *         with the given value
+   */
+  @Nullable
+  public String getRFieldName(String innerClass, int value) {
+    return getIndex(innerClass).namesByValue.get(value);
+  }
 
-    return null;
+  /**
+   * Describes an Android view ID for output to clients: {@code id/} followed
+   * by the field name in {@code R.id} if there is one, otherwise {@code #}
+   * followed by the number, which is the form accepted by a find by ID.
+   */
+  public String describeId(int androidId) {
+    String name = getRFieldName("id", androidId);
+    return (name == null) ? ("#" + androidId) : ("id/" + name);
   }
 
   public List<String> getRClassNames() {
     return rClassNames;
   }
 
-  @Nullable
-  private static Integer getRFieldFromClass(String fullClassName,
-      String fieldName) {
-    try {
-      Class<?> r = Class.forName(fullClassName);
+  private InnerClassIndex getIndex(String innerClass) {
+    InnerClassIndex index = indexes.get(innerClass);
 
-      Object fieldValue = r.getField(fieldName).get(null);
+    if (index == null) {
+      // Two threads may build the same index at once, but both will build
+      // identical indexes, so it does not matter which one is kept.
+      index = buildIndex(innerClass);
+      indexes.put(innerClass, index);
+    }
 
-      if (!(fieldValue instanceof Integer)) {
-        return null;
+    return index;
+  }
+
+  private InnerClassIndex buildIndex(String innerClass) {
+    Map<String, Integer> valuesByName = Maps.newHashMap();
+    Map<Integer, String> namesByValue = Maps.newHashMap();
+
+    for (String rClassName : rClassNames) {
+      Class<?> r = loadClass(rClassName + "$" + innerClass);
+
+      if (r == null) {
+        continue;
       }
 
-      return (Integer) fieldValue;
-    } catch (NullPointerException exception) {
-      return null;
+      for (Field field : r.getFields()) {
+        Integer fieldValue = getStaticIntField(field);
+
+        if (fieldValue == null) {
+          continue;
+        }
+
+        if (!valuesByName.containsKey(field.getName())) {
+          valuesByName.put(field.getName(), fieldValue);
+        }
+
+        if (!namesByValue.containsKey(fieldValue)) {
+          namesByValue.put(fieldValue, field.getName());
+        }
+      }
+    }
+
+    return new InnerClassIndex(valuesByName, namesByValue);
+  }
+
+  @Nullable
+  private static Class<?> loadClass(String fullClassName) {
+    try {
+      return Class.forName(fullClassName);
     } catch (ClassNotFoundException exception) {
       return null;
-    } catch (NoSuchFieldException exception) {
+    }
+  }
+
+  @Nullable
+  private static Integer getStaticIntField(Field field) {
+    if (!Modifier.isStatic(field.getModifiers())
+        || (field.getType() != int.class)) {
       return null;
+    }
+
+    try {
+      return field.getInt(null);
     } catch (IllegalAccessException exception) {
       return null;
     }
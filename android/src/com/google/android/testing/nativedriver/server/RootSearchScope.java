@@ -21,10 +21,6 @@ import com.google.common.collect.Lists;
 
 import android.view.View;
 
-import org.openqa.selenium.WebDriverException;
-
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -34,50 +30,32 @@ import javax.annotation.Nullable;
  * top level nodes. The children includes pop-up windows, dialogs, menus,
  * toasts.
  *
- * <p>Since we use reflection to get top level nodes, this implementation might
- * not work in future version of Android SDK.
+ * <p>The top level nodes are read from private classes of the platform by a
+ * {@link WindowListProvider}, which might not work in future versions of the
+ * Android SDK.
  *
  * @author Tomohiro Kaizu
  */
 public class RootSearchScope implements ElementSearchScope {
-  private static final String REFLECTION_ERROR_MESSAGE
-      = "Android NativeDriver only supports Android 2.2 (Froyo)."
-          + " Check your environment.";
-
   private final ElementContext context;
+  private final WindowListProvider windowListProvider;
 
   public RootSearchScope(ElementContext context) {
-    this.context = context;
+    this(context, WindowListProviders.getDefault());
   }
 
-  protected Class<?> getWindowManagerImplClass() throws ClassNotFoundException {
-    return Class.forName("android.view.WindowManagerImpl");
+  public RootSearchScope(
+      ElementContext context, WindowListProvider windowListProvider) {
+    this.context = context;
+    this.windowListProvider = windowListProvider;
   }
 
+  /**
+   * Returns the root views of all windows. The returned array must not be
+   * modified.
+   */
   protected View[] getTopLevelViews() {
-    try {
-      Class<?> wmClass = getWindowManagerImplClass();
-      Object wm = wmClass.getDeclaredMethod("getDefault").invoke(null);
-      Field views = wmClass.getDeclaredField("mViews");
-      views.setAccessible(true);
-      synchronized (wm) {
-        return ((View[]) views.get(wm)).clone();
-      }
-    } catch (ClassNotFoundException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    } catch (NoSuchMethodException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    } catch (NoSuchFieldException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    } catch (IllegalArgumentException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    } catch (InvocationTargetException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    } catch (SecurityException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    } catch (IllegalAccessException exception) {
-      throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
-    }
+    return windowListProvider.getTopLevelViews();
   }
 
   @Override
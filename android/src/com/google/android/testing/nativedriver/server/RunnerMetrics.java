@@ -0,0 +1,124 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency histograms of the operations run by an {@link InstrumentedRunner},
+ * kept separately for each operation tag. For each operation, the queue delay
+ * is the time from when it was handed to the runner until it started, which
+ * on the main application thread is mostly time spent behind the work of the
+ * application, and the execution time is the time it took to run.
+ *
+ * <p>This class is thread-safe.
+ */
+public class RunnerMetrics {
+  /** The tag under which every operation is also recorded. */
+  public static final String ALL_OPERATIONS = "*";
+
+  private final ConcurrentMap<String, OperationLatency> latencies
+      = new MapMaker().makeMap();
+
+  /**
+   * The histograms of one operation tag.
+   */
+  public static final class OperationLatency {
+    private final LatencyHistogram queueDelay = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    public LatencyHistogram getQueueDelay() {
+      return queueDelay;
+    }
+
+    public LatencyHistogram getExecution() {
+      return execution;
+    }
+
+    Map<String, Object> toJson() {
+      Map<String, Object> json = Maps.newLinkedHashMap();
+      json.put("queueDelay", queueDelay.toJson());
+      json.put("execution", execution.toJson());
+      return json;
+    }
+  }
+
+  /**
+   * Records one operation.
+   *
+   * @param tag identifies the kind of operation
+   * @param queueDelayNanos the time from hand-off to start in nanoseconds
+   * @param executionNanos the time taken to run in nanoseconds
+   */
+  public void record(String tag, long queueDelayNanos, long executionNanos) {
+    for (OperationLatency latency
+        : new OperationLatency[] {latencyOf(tag), latencyOf(ALL_OPERATIONS)}) {
+      latency.queueDelay.record(queueDelayNanos);
+      latency.execution.record(executionNanos);
+    }
+  }
+
+  private OperationLatency latencyOf(String tag) {
+    OperationLatency latency = latencies.get(tag);
+
+    if (latency == null) {
+      // Another thread may add the same tag first, or reset() may remove it
+      // again right away, so keep whichever instance was actually stored.
+      OperationLatency created = new OperationLatency();
+      latency = latencies.putIfAbsent(tag, created);
+
+      if (latency == null) {
+        latency = created;
+      }
+    }
+
+    return latency;
+  }
+
+  /**
+   * Returns the histograms of every tag recorded so far, sorted by tag.
+   */
+  public Map<String, OperationLatency> getLatencies() {
+    return ImmutableSortedMap.copyOf(latencies);
+  }
+
+  public void reset() {
+    latencies.clear();
+  }
+
+  /**
+   * Returns the histograms as a map from tag to an object with the
+   * {@code queueDelay} and {@code execution} histograms, in the format of
+   * {@link LatencyHistogram#toJson()}.
+   */
+  public Map<String, Object> toJson() {
+    Map<String, Object> json = Maps.newLinkedHashMap();
+
+    for (Map.Entry<String, OperationLatency> entry
+        : getLatencies().entrySet()) {
+      json.put(entry.getKey(), entry.getValue().toJson());
+    }
+
+    return json;
+  }
+}
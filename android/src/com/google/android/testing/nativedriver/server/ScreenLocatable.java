@@ -0,0 +1,36 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+/**
+ * Coordinates which can write their location on the screen into an array
+ * held by the caller, instead of returning a new {@code Point} on each call
+ * like {@code Coordinates.getLocationOnScreen()}. This lets touch events be
+ * sent to an element without allocating anything in the application under
+ * test.
+ */
+interface ScreenLocatable {
+  /**
+   * Writes the location of these coordinates on the screen into the given
+   * array, as in {@code View.getLocationOnScreen(int[])}.
+   *
+   * @param location an array of at least two elements, which receives the x
+   *        and y coordinates in that order
+   */
+  void getLocationOnScreen(int[] location);
+}
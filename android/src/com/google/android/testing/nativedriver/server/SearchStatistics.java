@@ -0,0 +1,90 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+/**
+ * Counts the work done by the searches of an {@link ElementFinder}. Each search
+ * attempt is one query, so a {@code findElement} call which polls five times
+ * before finding its element counts as five queries.
+ *
+ * <p>The getters do not lock, so reading several counters while searches are
+ * running may mix counts from before and after a query.
+ */
+public class SearchStatistics {
+  private volatile long queryCount;
+  private volatile long nodesCaptured;
+  private volatile long nodesVisited;
+  private volatile int lastQueryNodesVisited;
+  private volatile int maxQueryNodesVisited;
+
+  /**
+   * Records one query.
+   *
+   * @param captured the number of elements in the hierarchy that was searched
+   * @param visited the number of elements that were tested against the search
+   *        criteria before the search stopped
+   */
+  public synchronized void recordQuery(int captured, int visited) {
+    queryCount++;
+    nodesCaptured += captured;
+    nodesVisited += visited;
+    lastQueryNodesVisited = visited;
+    maxQueryNodesVisited = Math.max(maxQueryNodesVisited, visited);
+  }
+
+  public long getQueryCount() {
+    return queryCount;
+  }
+
+  /**
+   * Returns the total number of elements in all hierarchies searched.
+   */
+  public long getNodesCaptured() {
+    return nodesCaptured;
+  }
+
+  /**
+   * Returns the total number of elements tested against search criteria.
+   */
+  public long getNodesVisited() {
+    return nodesVisited;
+  }
+
+  public int getLastQueryNodesVisited() {
+    return lastQueryNodesVisited;
+  }
+
+  public int getMaxQueryNodesVisited() {
+    return maxQueryNodesVisited;
+  }
+
+  public synchronized void reset() {
+    queryCount = 0;
+    nodesCaptured = 0;
+    nodesVisited = 0;
+    lastQueryNodesVisited = 0;
+    maxQueryNodesVisited = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%d queries, %d nodes captured, %d nodes visited "
+        + "(last query: %d, max: %d)", queryCount, nodesCaptured,
+        nodesVisited, lastQueryNodesVisited, maxQueryNodesVisited);
+  }
+}
@@ -0,0 +1,611 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Compiles the compound selectors described in
+ * {@link com.google.android.testing.nativedriver.common.AndroidNativeBy#selector(String)}
+ * into predicates over {@link HierarchySnapshot.Node}s. Each selector string
+ * is parsed once, and the compiled predicate is cached and reused by later
+ * searches with the same selector.
+ *
+ * <p>A compiled selector is matched from right to left: a node matches if it
+ * matches the last simple selector, and its ancestors, found by following the
+ * parent links in the snapshot, match the rest. This means that a whole
+ * compound selector is evaluated in a single pass over the snapshot. A
+ * descendant combinator may try several ancestors for the same simple
+ * selector; the ancestors which failed to match the rest of the selector are
+ * remembered, so that matching one node takes at most one test of each simple
+ * selector on each of its ancestors.
+ */
+public class SelectorCompiler {
+  private static final int MAX_CACHED_SELECTORS = 128;
+
+  private static enum Combinator {DESCENDANT, CHILD}
+
+  private final RClassReader rClassReader;
+  private final Function<String, Integer> androidIdParser;
+  private final ConcurrentMap<String, Predicate<HierarchySnapshot.Node>> cache
+      = new MapMaker().maximumSize(MAX_CACHED_SELECTORS).makeMap();
+
+  /**
+   * @param rClassReader used to look up the symbolic names of Android IDs
+   * @param androidIdParser converts the value of an {@code [id='...']}
+   *        condition to an Android ID, in the same way as a find by ID. It
+   *        returns {@code null} if the value cannot be converted.
+   */
+  public SelectorCompiler(RClassReader rClassReader,
+      Function<String, Integer> androidIdParser) {
+    this.rClassReader = Preconditions.checkNotNull(rClassReader);
+    this.androidIdParser = Preconditions.checkNotNull(androidIdParser);
+  }
+
+  /**
+   * Returns the compiled form of the given selector.
+   *
+   * @throws WebDriverException if the selector is not valid
+   */
+  public Predicate<HierarchySnapshot.Node> compile(String selector) {
+    Predicate<HierarchySnapshot.Node> compiled = cache.get(selector);
+
+    if (compiled == null) {
+      compiled = new Parser(selector).parse();
+      cache.putIfAbsent(selector, compiled);
+    }
+
+    return compiled;
+  }
+
+  /**
+   * A sequence of simple selectors joined by combinators.
+   */
+  private static class CompoundSelector
+      implements Predicate<HierarchySnapshot.Node> {
+    private final String source;
+    private final List<Predicate<HierarchySnapshot.Node>> steps;
+    private final List<Combinator> combinators;
+    private final boolean hasDescendantCombinator;
+
+    /**
+     * @param combinators the combinator at index {@code i} joins the steps at
+     *        {@code i} and {@code i + 1}
+     */
+    CompoundSelector(String source,
+        List<Predicate<HierarchySnapshot.Node>> steps,
+        List<Combinator> combinators) {
+      this.source = source;
+      this.steps = ImmutableList.copyOf(steps);
+      this.combinators = ImmutableList.copyOf(combinators);
+      this.hasDescendantCombinator
+          = combinators.contains(Combinator.DESCENDANT);
+    }
+
+    @Override
+    public boolean apply(HierarchySnapshot.Node input) {
+      // Without a descendant combinator each node is tested at most once, so
+      // there is nothing to remember.
+      BitSet failures = hasDescendantCombinator ? new BitSet() : null;
+      return matches(input, steps.size() - 1, failures);
+    }
+
+    /**
+     * @param failures the pairs of a node and a step which are known not to
+     *        match, or {@code null} if they are not remembered. Every node
+     *        tested for one input is the input or one of its ancestors, so a
+     *        node is identified by its depth.
+     */
+    private boolean matches(HierarchySnapshot.Node node, int step,
+        @Nullable BitSet failures) {
+      int key = node.getDepth() * steps.size() + step;
+
+      if ((failures != null) && failures.get(key)) {
+        return false;
+      }
+
+      boolean matches = matchesUncached(node, step, failures);
+
+      if (!matches && (failures != null)) {
+        failures.set(key);
+      }
+
+      return matches;
+    }
+
+    private boolean matchesUncached(HierarchySnapshot.Node node, int step,
+        @Nullable BitSet failures) {
+      if (!steps.get(step).apply(node)) {
+        return false;
+      } else if (step == 0) {
+        return true;
+      }
+
+      if (combinators.get(step - 1) == Combinator.CHILD) {
+        HierarchySnapshot.Node parent = node.getParent();
+        return (parent != null) && matches(parent, step - 1, failures);
+      }
+
+      for (HierarchySnapshot.Node ancestor = node.getParent();
+          ancestor != null; ancestor = ancestor.getParent()) {
+        if (matches(ancestor, step - 1, failures)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    @Override
+    public String toString() {
+      return source;
+    }
+  }
+
+  /**
+   * Matches elements of a class, or a subclass of it, with the given
+   * fully-qualified name.
+   */
+  private static class QualifiedClassCondition
+      implements Predicate<HierarchySnapshot.Node> {
+    private final String className;
+    @Nullable private final Class<?> resolvedClass;
+
+    QualifiedClassCondition(String className) {
+      this.className = className;
+      this.resolvedClass = loadClass(className);
+    }
+
+    @Nullable
+    private static Class<?> loadClass(String className) {
+      try {
+        return Class.forName(className);
+      } catch (ClassNotFoundException exception) {
+        return null;
+      }
+    }
+
+    @Override
+    public boolean apply(HierarchySnapshot.Node input) {
+      return input.supportsClass(resolvedClass, className);
+    }
+  }
+
+  /**
+   * Matches elements of a class, or a subclass of a class, with the given
+   * simple name.
+   */
+  private static class SimpleClassCondition
+      implements Predicate<HierarchySnapshot.Node> {
+    private final String simpleName;
+    private final ConcurrentMap<Class<?>, Boolean> matchingClasses
+        = new MapMaker().weakKeys().makeMap();
+
+    SimpleClassCondition(String simpleName) {
+      this.simpleName = simpleName;
+    }
+
+    @Override
+    public boolean apply(HierarchySnapshot.Node input) {
+      Class<?> elementClass = input.getElementClass();
+      Boolean matches = matchingClasses.get(elementClass);
+
+      if (matches == null) {
+        matches = false;
+        for (Class<?> current = elementClass; current != null;
+            current = current.getSuperclass()) {
+          if (simpleName.equals(current.getSimpleName())) {
+            matches = true;
+            break;
+          }
+        }
+        matchingClasses.put(elementClass, matches);
+      }
+
+      return matches;
+    }
+  }
+
+  private static enum Operator {
+    EQUALS("=") {
+      @Override
+      boolean apply(String actual, String expected) {
+        return actual.equals(expected);
+      }
+    },
+    CONTAINS("*=") {
+      @Override
+      boolean apply(String actual, String expected) {
+        return actual.contains(expected);
+      }
+    },
+    STARTS_WITH("^=") {
+      @Override
+      boolean apply(String actual, String expected) {
+        return actual.startsWith(expected);
+      }
+    },
+    ENDS_WITH("$=") {
+      @Override
+      boolean apply(String actual, String expected) {
+        return actual.endsWith(expected);
+      }
+    };
+
+    private final String symbol;
+
+    private Operator(String symbol) {
+      this.symbol = symbol;
+    }
+
+    abstract boolean apply(String actual, String expected);
+  }
+
+  private static class TextCondition
+      implements Predicate<HierarchySnapshot.Node> {
+    @Nullable private final Operator operator;
+    private final String value;
+
+    /**
+     * @param operator the comparison, or {@code null} to match any element
+     *        which has text
+     */
+    TextCondition(@Nullable Operator operator, String value) {
+      this.operator = operator;
+      this.value = value;
+    }
+
+    @Override
+    public boolean apply(HierarchySnapshot.Node input) {
+      String text = input.getText();
+
+      if (text == null) {
+        return false;
+      }
+
+      return (operator == null) || operator.apply(text, value);
+    }
+  }
+
+  private class IdNameCondition implements Predicate<HierarchySnapshot.Node> {
+    private final Operator operator;
+    private final String value;
+
+    IdNameCondition(Operator operator, String value) {
+      this.operator = operator;
+      this.value = value;
+    }
+
+    @Override
+    public boolean apply(HierarchySnapshot.Node input) {
+      Integer androidId = input.getAndroidId();
+
+      if (androidId == null) {
+        return false;
+      }
+
+      String name = rClassReader.getRFieldName("id", androidId);
+      return (name != null) && operator.apply(name, value);
+    }
+  }
+
+  private static Predicate<HierarchySnapshot.Node> idEquals(
+      @Nullable final Integer androidId, @Nullable final String literalId) {
+    return new Predicate<HierarchySnapshot.Node>() {
+      @Override
+      public boolean apply(HierarchySnapshot.Node input) {
+        return (literalId == null)
+            ? androidId.equals(input.getAndroidId())
+            : literalId.equals(input.getLiteralId());
+      }
+    };
+  }
+
+  private static final Predicate<HierarchySnapshot.Node> HAS_ID
+      = new Predicate<HierarchySnapshot.Node>() {
+        @Override
+        public boolean apply(HierarchySnapshot.Node input) {
+          return (input.getAndroidId() != null)
+              || (input.getLiteralId() != null);
+        }
+      };
+
+  private static final Predicate<HierarchySnapshot.Node> DISPLAYED
+      = new Predicate<HierarchySnapshot.Node>() {
+        @Override
+        public boolean apply(HierarchySnapshot.Node input) {
+          return input.isDisplayed();
+        }
+      };
+
+  private static final Predicate<HierarchySnapshot.Node> ENABLED
+      = new Predicate<HierarchySnapshot.Node>() {
+        @Override
+        public boolean apply(HierarchySnapshot.Node input) {
+          return input.isEnabled();
+        }
+      };
+
+  private static final Predicate<HierarchySnapshot.Node> SELECTED
+      = new Predicate<HierarchySnapshot.Node>() {
+        @Override
+        public boolean apply(HierarchySnapshot.Node input) {
+          return input.isSelected();
+        }
+      };
+
+  /**
+   * A recursive-descent parser for a single selector string.
+   */
+  private class Parser {
+    private final String source;
+    private int position;
+
+    Parser(String source) {
+      this.source = source;
+    }
+
+    CompoundSelector parse() {
+      List<Predicate<HierarchySnapshot.Node>> steps = Lists.newArrayList();
+      List<Combinator> combinators = Lists.newArrayList();
+
+      skipWhitespace();
+      steps.add(parseSimpleSelector());
+
+      while (true) {
+        boolean sawWhitespace = skipWhitespace();
+
+        if (atEnd()) {
+          break;
+        } else if (peek() == '>') {
+          position++;
+          skipWhitespace();
+          combinators.add(Combinator.CHILD);
+        } else if (sawWhitespace) {
+          combinators.add(Combinator.DESCENDANT);
+        } else {
+          throw error("Unexpected character '" + peek() + "'");
+        }
+
+        steps.add(parseSimpleSelector());
+      }
+
+      return new CompoundSelector(source, steps, combinators);
+    }
+
+    private Predicate<HierarchySnapshot.Node> parseSimpleSelector() {
+      List<Predicate<HierarchySnapshot.Node>> conditions
+          = Lists.newArrayList();
+      int start = position;
+
+      if (!atEnd() && (peek() == '*')) {
+        position++;
+      } else {
+        String className = readWhile(".");
+
+        if (className.length() > 0) {
+          conditions.add((className.indexOf('.') == -1)
+              ? new SimpleClassCondition(className)
+              : new QualifiedClassCondition(className));
+        }
+      }
+
+      while (!atEnd() && (peek() == '[')) {
+        conditions.add(parseAttributeCondition());
+      }
+
+      if (position == start) {
+        throw error("Expected a class name, '*' or an attribute condition");
+      }
+
+      return conditions.isEmpty()
+          ? Predicates.<HierarchySnapshot.Node>alwaysTrue()
+          : Predicates.and(conditions);
+    }
+
+    private Predicate<HierarchySnapshot.Node> parseAttributeCondition() {
+      expect('[');
+      skipWhitespace();
+      String attribute = readAttributeName();
+
+      if (attribute.length() == 0) {
+        throw error("Expected an attribute name");
+      }
+
+      skipWhitespace();
+      Operator operator = null;
+      String value = null;
+
+      if (!atEnd() && (peek() != ']')) {
+        operator = readOperator();
+        skipWhitespace();
+        value = readValue();
+        skipWhitespace();
+      }
+
+      expect(']');
+      return newAttributeCondition(attribute, operator, value);
+    }
+
+    private Predicate<HierarchySnapshot.Node> newAttributeCondition(
+        String attribute, @Nullable Operator operator, @Nullable String value) {
+      if ("text".equals(attribute)) {
+        return new TextCondition(operator, value);
+      } else if ("id".equals(attribute)) {
+        if (operator == null) {
+          return HAS_ID;
+        } else if (operator != Operator.EQUALS) {
+          return new IdNameCondition(operator, value);
+        } else if (value.startsWith("$")) {
+          return idEquals(null, value);
+        }
+
+        Integer androidId = androidIdParser.apply(value);
+        return (androidId == null)
+            ? Predicates.<HierarchySnapshot.Node>alwaysFalse()
+            : idEquals(androidId, null);
+      }
+
+      Predicate<HierarchySnapshot.Node> state;
+      if ("displayed".equals(attribute)) {
+        state = DISPLAYED;
+      } else if ("enabled".equals(attribute)) {
+        state = ENABLED;
+      } else if ("selected".equals(attribute)) {
+        state = SELECTED;
+      } else {
+        throw error("Unknown attribute '" + attribute + "'");
+      }
+
+      if (operator == null) {
+        return state;
+      } else if (operator == Operator.EQUALS && "true".equals(value)) {
+        return state;
+      } else if (operator == Operator.EQUALS && "false".equals(value)) {
+        return Predicates.not(state);
+      }
+
+      throw error(String.format(
+          "The '%s' attribute can only be compared to 'true' or 'false' "
+          + "with '='", attribute));
+    }
+
+    private Operator readOperator() {
+      for (Operator operator : Operator.values()) {
+        if (source.startsWith(operator.symbol, position)) {
+          position += operator.symbol.length();
+          return operator;
+        }
+      }
+
+      throw error("Expected one of '=', '*=', '^=', '$=' or ']'");
+    }
+
+    private String readValue() {
+      if (atEnd()) {
+        throw error("Expected an attribute value");
+      }
+
+      char quote = peek();
+      if ((quote != '\'') && (quote != '"')) {
+        String value = readWhile(".#");
+
+        if (value.length() == 0) {
+          throw error("Expected an attribute value");
+        }
+
+        return value;
+      }
+
+      position++;
+      StringBuilder value = new StringBuilder();
+
+      while (!atEnd() && (peek() != quote)) {
+        if (peek() == '\\') {
+          position++;
+
+          if (atEnd()) {
+            break;
+          }
+        }
+
+        value.append(source.charAt(position++));
+      }
+
+      expect(quote);
+      return value.toString();
+    }
+
+    private String readAttributeName() {
+      int start = position;
+
+      while (!atEnd() && Character.isLetter(peek())) {
+        position++;
+      }
+
+      return source.substring(start, position);
+    }
+
+    /**
+     * Reads characters which are Java identifier parts or in
+     * {@code extraCharacters}.
+     */
+    private String readWhile(String extraCharacters) {
+      int start = position;
+
+      while (!atEnd()) {
+        char next = peek();
+
+        if (!Character.isJavaIdentifierPart(next)
+            && (extraCharacters.indexOf(next) == -1)) {
+          break;
+        }
+
+        position++;
+      }
+
+      return source.substring(start, position);
+    }
+
+    private boolean skipWhitespace() {
+      int start = position;
+
+      while (!atEnd() && Character.isWhitespace(peek())) {
+        position++;
+      }
+
+      return position != start;
+    }
+
+    private void expect(char expected) {
+      if (atEnd() || (peek() != expected)) {
+        throw error("Expected '" + expected + "'");
+      }
+
+      position++;
+    }
+
+    private boolean atEnd() {
+      return position >= source.length();
+    }
+
+    private char peek() {
+      return source.charAt(position);
+    }
+
+    private WebDriverException error(String message) {
+      return new WebDriverException(String.format(
+          "Invalid selector '%s' at position %d: %s",
+          source, position, message));
+    }
+  }
+}
@@ -24,6 +24,8 @@ import android.content.Context;
 import android.os.Bundle;
 import android.os.PowerManager;
 import android.util.Log;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
 
 import org.mortbay.jetty.Connector;
 import org.mortbay.jetty.Handler;
@@ -66,9 +68,17 @@ public class ServerInstrumentation extends Instrumentation {
   @Nullable private PowerManager.WakeLock wakeLock;
   @Nullable private KeyguardManager.KeyguardLock keyguardLock;
   private final ActivitiesReporter activitiesReporter;
+  private final ViewTreeMonitor viewTreeMonitor;
+  private final MainThreadWatchdog mainThreadWatchdog;
+  private final RunnerMetrics runnerMetrics;
+  private final InputRecorder inputRecorder;
 
   public ServerInstrumentation() {
     activitiesReporter = new ActivitiesReporter();
+    viewTreeMonitor = new ViewTreeMonitor();
+    mainThreadWatchdog = new MainThreadWatchdog();
+    runnerMetrics = new RunnerMetrics();
+    inputRecorder = new InputRecorder();
   }
 
   @Override
@@ -167,6 +177,11 @@ public class ServerInstrumentation extends Instrumentation {
     super.callActivityOnResume(activity);
 
     activitiesReporter.wasResumed(activity);
+    viewTreeMonitor.invalidate();
+
+    if (inputRecorder.isRecording(InputRecorder.Source.APPLICATION)) {
+      inputRecorder.attachTo(activity.getWindow());
+    }
   }
 
   @Override
@@ -174,6 +189,14 @@ public class ServerInstrumentation extends Instrumentation {
     super.callActivityOnCreate(activity, icicle);
 
     activitiesReporter.wasCreated(activity);
+    viewTreeMonitor.invalidate();
+  }
+
+  @Override
+  public void callActivityOnPause(Activity activity) {
+    super.callActivityOnPause(activity);
+
+    viewTreeMonitor.invalidate();
   }
 
   @Override
@@ -181,12 +204,71 @@ public class ServerInstrumentation extends Instrumentation {
     activitiesReporter.wasDestroyed(activity);
 
     super.callActivityOnDestroy(activity);
+    viewTreeMonitor.invalidate();
+  }
+
+  // Injected input usually changes the UI, but the change may not be laid out
+  // or drawn by the time the call returns, so count it as a change right away.
+
+  @Override
+  public void sendKeySync(KeyEvent event) {
+    inputRecorder.record(event, InputRecorder.Source.INSTRUMENTATION);
+    super.sendKeySync(event);
+
+    viewTreeMonitor.invalidate();
+  }
+
+  @Override
+  public void sendPointerSync(MotionEvent event) {
+    inputRecorder.record(event, InputRecorder.Source.INSTRUMENTATION);
+    super.sendPointerSync(event);
+
+    viewTreeMonitor.invalidate();
+  }
+
+  @Override
+  public void sendTrackballEventSync(MotionEvent event) {
+    super.sendTrackballEventSync(event);
+
+    viewTreeMonitor.invalidate();
   }
 
   public Activities getActivities() {
     return activitiesReporter.getActivities();
   }
 
+  /**
+   * Returns the monitor which is told of every activity state change and
+   * injected input event.
+   */
+  public ViewTreeMonitor getViewTreeMonitor() {
+    return viewTreeMonitor;
+  }
+
+  /**
+   * Returns the watchdog which reports operations that keep the main
+   * application thread busy for too long.
+   */
+  public MainThreadWatchdog getMainThreadWatchdog() {
+    return mainThreadWatchdog;
+  }
+
+  /**
+   * Returns the latencies of the operations run on the main application
+   * thread by every driver.
+   */
+  public RunnerMetrics getRunnerMetrics() {
+    return runnerMetrics;
+  }
+
+  /**
+   * Returns the recorder which is passed every injected input event, and the
+   * input events dispatched to the activities resumed while it records them.
+   */
+  public InputRecorder getInputRecorder() {
+    return inputRecorder;
+  }
+
   /**
    * Called by the Android runtime to clean up the {@code Instrumentation}.
    * This implementation releases the locks obtained in {@code onStart} and
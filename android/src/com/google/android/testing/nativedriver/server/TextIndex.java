@@ -0,0 +1,243 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the text of the nodes in a {@link HierarchySnapshot}, used to
+ * answer find-by-text and find-by-partial-text queries without visiting every
+ * node. Exact text is looked up in a hash table. Substrings of at least
+ * {@link #GRAM_LENGTH} characters are looked up in an inverted index of the
+ * character trigrams of each text: only the nodes which contain every trigram
+ * of the query are candidates, and only those are compared with
+ * {@code indexOf}.
+ *
+ * <p>All lists of nodes returned by this class are in depth-first pre-order.
+ * Instances are immutable once built, so they can be shared by threads.
+ */
+public final class TextIndex {
+  /**
+   * The length of the substrings stored in the inverted index. Shorter
+   * queries are answered by checking every node which has text.
+   */
+  static final int GRAM_LENGTH = 3;
+
+  private final HierarchySnapshot snapshot;
+  private final List<HierarchySnapshot.Node> nodesWithText;
+  private final Map<String, List<HierarchySnapshot.Node>> nodesByText;
+  private final Map<Long, int[]> postingsByGram;
+
+  private TextIndex(HierarchySnapshot snapshot,
+      List<HierarchySnapshot.Node> nodesWithText,
+      Map<String, List<HierarchySnapshot.Node>> nodesByText,
+      Map<Long, int[]> postingsByGram) {
+    this.snapshot = snapshot;
+    this.nodesWithText = nodesWithText;
+    this.nodesByText = nodesByText;
+    this.postingsByGram = postingsByGram;
+  }
+
+  /**
+   * Indexes the text of every node in the given snapshot.
+   */
+  public static TextIndex of(HierarchySnapshot snapshot) {
+    List<HierarchySnapshot.Node> nodesWithText = Lists.newArrayList();
+    Map<String, List<HierarchySnapshot.Node>> nodesByText = Maps.newHashMap();
+    Map<Long, IntList> postings = Maps.newHashMap();
+
+    for (HierarchySnapshot.Node node : snapshot.getNodes()) {
+      String text = node.getText();
+
+      if (text == null) {
+        continue;
+      }
+
+      nodesWithText.add(node);
+
+      List<HierarchySnapshot.Node> sameText = nodesByText.get(text);
+      if (sameText == null) {
+        sameText = Lists.newArrayListWithCapacity(1);
+        nodesByText.put(text, sameText);
+      }
+      sameText.add(node);
+
+      for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+        Long gram = gramAt(text, start);
+        IntList nodes = postings.get(gram);
+
+        if (nodes == null) {
+          nodes = new IntList();
+          postings.put(gram, nodes);
+        }
+
+        // Nodes are visited in increasing index order, so a repeated gram in
+        // the same text is always at the end of the list.
+        nodes.addIfNotLast(node.getIndex());
+      }
+    }
+
+    Map<Long, int[]> postingsByGram
+        = Maps.newHashMapWithExpectedSize(postings.size());
+    for (Map.Entry<Long, IntList> entry : postings.entrySet()) {
+      postingsByGram.put(entry.getKey(), entry.getValue().toArray());
+    }
+
+    return new TextIndex(
+        snapshot, nodesWithText, nodesByText, postingsByGram);
+  }
+
+  /**
+   * Returns the nodes whose text equals {@code text}.
+   */
+  public List<HierarchySnapshot.Node> findByText(String text) {
+    List<HierarchySnapshot.Node> nodes = nodesByText.get(text);
+    return (nodes == null)
+        ? ImmutableList.<HierarchySnapshot.Node>of()
+        : ImmutableList.copyOf(nodes);
+  }
+
+  /**
+   * Returns the nodes whose text contains {@code text}.
+   */
+  public List<HierarchySnapshot.Node> findByPartialText(String text) {
+    if (text.length() < GRAM_LENGTH) {
+      return filterContaining(nodesWithText, text);
+    }
+
+    // Intersect the postings of every gram in the query, starting with the
+    // shortest list, so the candidate set shrinks as quickly as possible.
+    int gramCount = text.length() - GRAM_LENGTH + 1;
+    int[][] postings = new int[gramCount][];
+    int shortest = 0;
+
+    for (int start = 0; start < gramCount; start++) {
+      postings[start] = postingsByGram.get(gramAt(text, start));
+
+      if (postings[start] == null) {
+        return ImmutableList.of();
+      } else if (postings[start].length < postings[shortest].length) {
+        shortest = start;
+      }
+    }
+
+    int[] candidates = postings[shortest];
+    int candidateCount = candidates.length;
+    candidates = candidates.clone();
+
+    for (int gram = 0; gram < gramCount && candidateCount > 0; gram++) {
+      if (gram != shortest) {
+        candidateCount = retainAll(
+            candidates, candidateCount, postings[gram]);
+      }
+    }
+
+    List<HierarchySnapshot.Node> nodes
+        = Lists.newArrayListWithCapacity(candidateCount);
+    for (int i = 0; i < candidateCount; i++) {
+      nodes.add(snapshot.getNode(candidates[i]));
+    }
+
+    // Having all the grams of the query does not mean having them in order,
+    // so confirm each candidate.
+    return filterContaining(nodes, text);
+  }
+
+  private static List<HierarchySnapshot.Node> filterContaining(
+      List<HierarchySnapshot.Node> nodes, String text) {
+    List<HierarchySnapshot.Node> result = Lists.newArrayList();
+
+    for (HierarchySnapshot.Node node : nodes) {
+      if (node.getText().indexOf(text) != -1) {
+        result.add(node);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes the values in the first {@code count} elements of the sorted
+   * array {@code values} which are not in the sorted array {@code other}.
+   *
+   * @return the number of values kept, which are moved to the start of
+   *         {@code values}
+   */
+  private static int retainAll(int[] values, int count, int[] other) {
+    int kept = 0;
+    int otherPosition = 0;
+
+    for (int i = 0; i < count; i++) {
+      while (otherPosition < other.length
+          && other[otherPosition] < values[i]) {
+        otherPosition++;
+      }
+
+      if (otherPosition == other.length) {
+        break;
+      } else if (other[otherPosition] == values[i]) {
+        values[kept++] = values[i];
+      }
+    }
+
+    return kept;
+  }
+
+  private static Long gramAt(String text, int start) {
+    long gram = 0;
+
+    for (int i = start; i < start + GRAM_LENGTH; i++) {
+      gram = (gram << Character.SIZE) | text.charAt(i);
+    }
+
+    return gram;
+  }
+
+  /**
+   * A growable list of {@code int}s which does not box its values.
+   */
+  private static class IntList {
+    private int[] values = new int[4];
+    private int size;
+
+    void addIfNotLast(int value) {
+      if (size > 0 && values[size - 1] == value) {
+        return;
+      }
+
+      if (size == values.length) {
+        int[] grown = new int[size * 2];
+        System.arraycopy(values, 0, grown, 0, size);
+        values = grown;
+      }
+
+      values[size++] = value;
+    }
+
+    int[] toArray() {
+      int[] result = new int[size];
+      System.arraycopy(values, 0, result, 0, size);
+      return result;
+    }
+  }
+}
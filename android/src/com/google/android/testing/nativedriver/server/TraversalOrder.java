@@ -0,0 +1,80 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.android.testing.nativedriver.common.AndroidCapabilities;
+import com.google.common.base.Preconditions;
+
+/**
+ * The order in which {@link ElementFinder} visits the elements of a search
+ * scope. The order decides which element is returned by {@code findElement}
+ * when more than one matches, and the order of the results of
+ * {@code findElements}. It can be chosen for a session with the
+ * {@link AndroidCapabilities#TRAVERSAL_ORDER} capability.
+ *
+ * <p>The order applies to the filtering of the {@link HierarchySnapshot}
+ * taken for a search. Since snapshots are taken in depth-first order, only a
+ * depth-first search for a single element can stop copying the scope at its
+ * first match; a breadth-first search copies the whole scope first.
+ */
+public enum TraversalOrder {
+  /**
+   * Visits each element before its children, and all of an element's
+   * descendants before its next sibling. This is the order in which views are
+   * laid out in the view hierarchy, and is the default.
+   */
+  DEPTH_FIRST(AndroidCapabilities.TRAVERSAL_ORDER_DEPTH_FIRST),
+
+  /**
+   * Visits all top-level elements first, then all of their children, and so
+   * on. Matches that are close to the top of the hierarchy are found without
+   * visiting the deeper parts of the hierarchy that come before them in
+   * depth-first order.
+   */
+  BREADTH_FIRST(AndroidCapabilities.TRAVERSAL_ORDER_BREADTH_FIRST);
+
+  private final String name;
+
+  private TraversalOrder(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the name of the order used in the capability.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the order with the given capability name.
+   *
+   * @throws IllegalArgumentException if there is no such order
+   */
+  public static TraversalOrder forName(String name) {
+    Preconditions.checkNotNull(name);
+
+    for (TraversalOrder order : values()) {
+      if (order.name.equals(name)) {
+        return order;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown traversal order: " + name);
+  }
+}
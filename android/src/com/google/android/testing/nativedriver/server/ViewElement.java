@@ -76,7 +76,7 @@ public class ViewElement<V extends View>
   private final V view;
   private final Coordinates coordinates;
 
-  private class ViewCoordinates implements Coordinates {
+  private class ViewCoordinates implements Coordinates, ScreenLocatable {
     /**
      * {@inheritDoc}
      *
@@ -84,10 +84,21 @@ public class ViewElement<V extends View>
      */
     @Override
     public Point getLocationOnScreen() {
-      Point leftTopLocation = getLocation();
-      int x = leftTopLocation.x + (getViewWidth() / 2);
-      int y = leftTopLocation.y + (getViewHeight() / 2);
-      return new Point(x, y);
+      int[] location = new int[2];
+      getLocationOnScreen(location);
+      return new Point(location[0], location[1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation writes the center of the {@code View}.
+     */
+    @Override
+    public void getLocationOnScreen(int[] location) {
+      view.getLocationOnScreen(location);
+      location[0] += getViewWidth() / 2;
+      location[1] += getViewHeight() / 2;
     }
 
     @Override
@@ -287,16 +298,26 @@ public class ViewElement<V extends View>
   }
 
   protected AndroidWait newAndroidWait() {
-    return new AndroidWait();
+    return new AndroidWait(context.getViewTreeMonitor());
   }
 
+  /**
+   * Scrolls the {@code View} onto the screen if needed. The bounds are read
+   * and the scroll is requested in a single operation on the main thread of
+   * the application, so the bounds cannot change in between.
+   */
   protected void scrollIntoScreenIfNeeded() {
-    Point leftTopLocation = getLocation();
-    int left = leftTopLocation.x;
-    int top = leftTopLocation.y;
-    int right = left + getViewWidth();
-    int bottom = top + getViewHeight();
-    requestRectangleOnScreen(new Rect(left, top, right, bottom));
+    context.getOnMainSyncRunner().run(new Runnable() {
+      @Override
+      public void run() {
+        Point leftTopLocation = getLocation();
+        int left = leftTopLocation.x;
+        int top = leftTopLocation.y;
+        int right = left + getViewWidth();
+        int bottom = top + getViewHeight();
+        view.requestRectangleOnScreen(new Rect(left, top, right, bottom));
+      }
+    });
   }
 
   protected int getViewWidth() {
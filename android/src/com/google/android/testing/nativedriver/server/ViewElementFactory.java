@@ -17,24 +17,47 @@ limitations under the License.
 
 package com.google.android.testing.nativedriver.server;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.MapMaker;
+
 import android.view.View;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nullable;
+
 /**
  * Represents a sequence of {@code ViewElementType}, and uses the sequence to
  * wrap {@code View}s. The "best" {@code ViewElementType} is used to wrap each
  * {@code View} by trying each {@code ViewElementType} in order and using the
  * first one that supports the {@code View}.
  *
+ * <p>The type chosen for each {@code View} class is remembered, so the
+ * sequence is only scanned the first time a class is seen. Registering a new
+ * type with {@link #register} clears what has been remembered. A choice is
+ * not remembered if a type which overrides
+ * {@link ViewElementType#supportsView} was asked before it, since that type
+ * may accept another {@code View} of the same class.
+ *
  * @author Matt DeVore
  */
 public class ViewElementFactory {
-  private ViewElementType[] types;
+  private final List<ViewElementType> types;
+
+  // Replaced rather than cleared when a type is registered, so a lookup that
+  // raced with the registration cannot store its result in the new map.
+  private volatile ConcurrentMap<Class<? extends View>, ViewElementType>
+      typesByViewClass = newTypesByViewClass();
 
   /**
    * Constructs a new instance using the given {@code ViewElementType}s.
    */
   public ViewElementFactory(ViewElementType... types) {
-    this.types = types.clone();
+    this.types = new CopyOnWriteArrayList<ViewElementType>(
+        Arrays.asList(types));
   }
 
   private static final ViewElementFactory INSTANCE = new ViewElementFactory(
@@ -43,6 +66,12 @@ public class ViewElementFactory {
       ViewGroupElement.TYPE,
       ViewElement.TYPE);
 
+  private static ConcurrentMap<Class<? extends View>, ViewElementType>
+      newTypesByViewClass() {
+    // Weak keys so that classes of unloaded code can be collected.
+    return new MapMaker().weakKeys().makeMap();
+  }
+
   /**
    * Returns the default instance of {@code ViewElementFactory} that contains
    * all supported view types.
@@ -51,22 +80,68 @@ public class ViewElementFactory {
     return INSTANCE;
   }
 
+  /**
+   * Adds a type which will be tried before all the types this instance already
+   * has. This makes it possible to wrap custom widgets of the application
+   * under test in a custom subclass of {@code ViewElement}. Types registered
+   * later take precedence over types registered earlier.
+   *
+   * @param type the type to add
+   */
+  public void register(ViewElementType type) {
+    types.add(0, Preconditions.checkNotNull(type));
+    typesByViewClass = newTypesByViewClass();
+  }
+
   /**
    * Finds the first type that supports the given {@code View} and wraps it in
    * a new instance of the supporting type. This is done using the
-   * {@code ViewElementType}s passed to the constructor.
+   * {@code ViewElementType}s passed to the constructor, and any that have
+   * been registered since.
    *
    * @throw IllegalArgumentException if no type supports the given
    *        {@code View}
    */
   public ViewElement<?> newViewElement(ElementContext context, View view) {
+    ConcurrentMap<Class<? extends View>, ViewElementType> cache
+        = typesByViewClass;
+    Class<? extends View> viewClass = view.getClass();
+    ViewElementType viewElementType = cache.get(viewClass);
+
+    if (viewElementType == null) {
+      viewElementType = findType(cache, view);
+
+      if (viewElementType == null) {
+        throw new IllegalArgumentException(
+            "Could not find a ViewElement type that supports View: " + view);
+      }
+    }
+
+    return viewElementType.newInstance(context, view);
+  }
+
+  /**
+   * Returns the first type which supports the given {@code View}, and
+   * remembers it for the class of the {@code View} unless the choice may
+   * differ for other {@code View}s of the class.
+   */
+  @Nullable
+  private ViewElementType findType(
+      ConcurrentMap<Class<? extends View>, ViewElementType> cache,
+      View view) {
+    boolean cacheable = true;
+
     for (ViewElementType viewElementType : types) {
       if (viewElementType.supportsView(view)) {
-        return viewElementType.newInstance(context, view);
+        if (cacheable && !viewElementType.isViewDependent()) {
+          cache.put(view.getClass(), viewElementType);
+        }
+        return viewElementType;
       }
+
+      cacheable &= !viewElementType.isViewDependent();
     }
 
-    throw new IllegalArgumentException(
-        "Could not find a ViewElement type that supports View: " + view);
+    return null;
   }
 }
@@ -28,6 +28,7 @@ import android.view.View;
  */
 public abstract class ViewElementType {
   private Class<? extends View> viewClass;
+  private final boolean viewDependent;
 
   /**
    * Creates a new instance which is capable of wrapping any {@code View} that
@@ -38,16 +39,49 @@ public abstract class ViewElementType {
    */
   public ViewElementType(Class<? extends View> viewClass) {
     this.viewClass = viewClass;
+
+    try {
+      viewDependent = getClass().getMethod("supportsView", View.class)
+          .getDeclaringClass() != ViewElementType.class;
+    } catch (NoSuchMethodException exception) {
+      throw new AssertionError(exception);
+    }
   }
 
   /**
    * Indicates whether the given {@code View} can be wrapped with this
-   * {@code ViewElement} implementation. The default implementation returns
-   * {@code true} when the given {@code View} is an instance of the class passed
-   * to the constructor.
+   * {@code ViewElement} implementation. This implementation returns the result
+   * of {@link #supportsViewClass} for the class of the given {@code View}.
+   *
+   * <p>Override this method rather than {@link #supportsViewClass} if the
+   * answer depends on the state of the {@code View}. {@link ViewElementFactory}
+   * then asks this type about every {@code View} it could wrap, instead of
+   * remembering the answer for the class.
    */
   public boolean supportsView(View view) {
-    return viewClass.isInstance(view);
+    return supportsViewClass(view.getClass());
+  }
+
+  /**
+   * Indicates whether every {@code View} of the given class can be wrapped
+   * with this {@code ViewElement} implementation. The default implementation
+   * returns {@code true} when the given class is the class passed to the
+   * constructor or a subclass of it.
+   *
+   * <p>{@link ViewElementFactory} caches the answer for each class it sees, so
+   * the answer must depend only on the class and not on the state of any
+   * particular {@code View}.
+   */
+  public boolean supportsViewClass(Class<? extends View> candidateClass) {
+    return viewClass.isAssignableFrom(candidateClass);
+  }
+
+  /**
+   * Indicates whether this type overrides {@link #supportsView}, so that its
+   * answer may differ between {@code View}s of the same class.
+   */
+  boolean isViewDependent() {
+    return viewDependent;
   }
 
   /**
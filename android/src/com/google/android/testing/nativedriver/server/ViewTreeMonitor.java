@@ -0,0 +1,175 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.MapMaker;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a version number which changes whenever the UI may have changed. The
+ * version is bumped when any watched view tree is laid out or about to be
+ * drawn, when the set of windows changes, when an activity changes state, and
+ * when input is injected. Data derived from the UI can be reused for as long
+ * as the version is the same as when the data was read.
+ *
+ * <p>View trees are watched by calling {@link #watch(View)} on the main
+ * application thread, which installs an {@code OnGlobalLayoutListener} and an
+ * {@code OnPreDrawListener} on the tree the first time it is seen. The
+ * {@link HierarchySnapshotter} does this for every tree it captures.
+ *
+ * <p>The version can be read from any thread, and threads can wait for it to
+ * change with {@link #awaitChange(long, long)}.
+ */
+public class ViewTreeMonitor {
+  private final AtomicLong version = new AtomicLong();
+
+  // Notified when the version changes. The count of waiting threads lets
+  // invalidate(), which is called for every frame drawn, skip taking the lock
+  // when nobody is waiting.
+  private final Object changeLock = new Object();
+  private final AtomicInteger waiterCount = new AtomicInteger();
+
+  // Only accessed on the main application thread. The observers are held
+  // weakly so that the trees of closed windows can be collected.
+  private final Map<ViewTreeObserver, Boolean> watchedObservers
+      = new MapMaker().weakKeys().makeMap();
+
+  private final Object topLevelViewsLock = new Object();
+  private View[] lastTopLevelViews = new View[0];
+
+  private final Listener listener = new Listener();
+
+  private class Listener implements ViewTreeObserver.OnGlobalLayoutListener,
+      ViewTreeObserver.OnPreDrawListener {
+    @Override
+    public void onGlobalLayout() {
+      invalidate();
+    }
+
+    @Override
+    public boolean onPreDraw() {
+      invalidate();
+      return true;
+    }
+  }
+
+  /**
+   * Returns the current version. Two calls return the same value only if no
+   * change to the UI was detected between them.
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Records that the UI may have changed.
+   */
+  public void invalidate() {
+    version.incrementAndGet();
+
+    if (waiterCount.get() > 0) {
+      synchronized (changeLock) {
+        changeLock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Blocks until the version differs from {@code sinceVersion}, or until
+   * {@code maxWaitInMillis} have passed.
+   *
+   * @return {@code true} if the version changed
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public boolean awaitChange(long sinceVersion, long maxWaitInMillis)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + maxWaitInMillis;
+
+    synchronized (changeLock) {
+      // Registering as a waiter before reading the version guarantees that
+      // an invalidate() which this read misses will notify the lock.
+      waiterCount.incrementAndGet();
+      try {
+        while (version.get() == sinceVersion) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            return false;
+          }
+          changeLock.wait(remaining);
+        }
+        return true;
+      } finally {
+        waiterCount.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Starts watching the view tree containing the given view, if it is not
+   * watched already. This must be called on the main application thread.
+   */
+  public void watch(View view) {
+    ViewTreeObserver observer = view.getRootView().getViewTreeObserver();
+
+    if (!observer.isAlive() || watchedObservers.containsKey(observer)) {
+      return;
+    }
+
+    observer.addOnGlobalLayoutListener(listener);
+    observer.addOnPreDrawListener(listener);
+
+    // Forget the observers which are no longer in use. Their listeners were
+    // dropped by Android when they died or were merged into another
+    // observer.
+    Iterator<ViewTreeObserver> watched = watchedObservers.keySet().iterator();
+    while (watched.hasNext()) {
+      if (!watched.next().isAlive()) {
+        watched.remove();
+      }
+    }
+
+    watchedObservers.put(observer, true);
+  }
+
+  /**
+   * Bumps the version if the given top-level views, which are the roots of
+   * all windows, are not the same as in the last call. Windows which are
+   * opened or closed do not necessarily cause any watched tree to be laid out
+   * or drawn, so this catches changes which the listeners miss.
+   *
+   * <p>The array is kept rather than copied, so it must not be modified
+   * afterwards, as is the case for the arrays returned by
+   * {@link WindowListProvider}s.
+   */
+  public void checkTopLevelViews(View[] topLevelViews) {
+    synchronized (topLevelViewsLock) {
+      if (!Arrays.equals(lastTopLevelViews, topLevelViews)) {
+        lastTopLevelViews = topLevelViews;
+        invalidate();
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import android.view.View;
+
+/**
+ * Provides the root views of all the windows of the application, which are
+ * kept by private classes of the Android platform. Implementations read them
+ * through reflection handles which are resolved once, since this is called on
+ * every search. {@link WindowListProviders#getDefault()} returns the
+ * implementation which works on the current platform.
+ */
+public interface WindowListProvider {
+  /**
+   * Returns the root views of all windows, from the bottom to the top. The
+   * same array is returned for as long as the windows do not change, so it
+   * must not be modified.
+   */
+  View[] getTopLevelViews();
+}
@@ -0,0 +1,207 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server;
+
+import com.google.common.collect.ImmutableList;
+
+import android.view.View;
+
+import org.openqa.selenium.WebDriverException;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Factory methods for the {@link WindowListProvider}s of the supported
+ * versions of the Android platform.
+ *
+ * <p>Up to Android 4.1, the windows are kept in the {@code mViews} array of
+ * the {@code WindowManagerImpl} singleton. From Android 4.2 they are kept in
+ * {@code WindowManagerGlobal}, which holds them in an array, and from Android
+ * 4.4 in a list.
+ */
+public final class WindowListProviders {
+  private static final String REFLECTION_ERROR_MESSAGE
+      = "Android NativeDriver could not find the list of windows of this"
+          + " version of Android. Check your environment.";
+
+  private static volatile WindowListProvider defaultProvider;
+
+  private WindowListProviders() {}
+
+  /**
+   * Returns the provider for the current platform. The first call tries each
+   * known provider in turn, newest first, and the one which works is reused
+   * for the rest of the process.
+   *
+   * @throws WebDriverException if no provider works on this platform
+   */
+  public static WindowListProvider getDefault() {
+    WindowListProvider provider = defaultProvider;
+
+    if (provider == null) {
+      provider = select();
+      defaultProvider = provider;
+    }
+
+    return provider;
+  }
+
+  private static WindowListProvider select() {
+    Exception lastFailure = null;
+
+    for (String platformClass : ImmutableList.of(
+        "android.view.WindowManagerGlobal", "android.view.WindowManagerImpl")) {
+      try {
+        return forSingleton(platformClass);
+      } catch (Exception exception) {
+        lastFailure = exception;
+      }
+    }
+
+    throw new WebDriverException(REFLECTION_ERROR_MESSAGE, lastFailure);
+  }
+
+  /**
+   * Returns a provider which reads the {@code mViews} field of the singleton
+   * of the given platform class. The singleton is returned by a static
+   * {@code getInstance} or, in older versions, {@code getDefault} method.
+   *
+   * @throws Exception if the class does not have the expected members
+   */
+  public static WindowListProvider forSingleton(String className)
+      throws Exception {
+    Class<?> windowManagerClass = Class.forName(className);
+    Object windowManager;
+
+    try {
+      windowManager = windowManagerClass.getDeclaredMethod("getInstance")
+          .invoke(null);
+    } catch (NoSuchMethodException exception) {
+      windowManager = windowManagerClass.getDeclaredMethod("getDefault")
+          .invoke(null);
+    }
+
+    Field views = windowManagerClass.getDeclaredField("mViews");
+    views.setAccessible(true);
+
+    // Newer versions guard the list with a separate lock object, older ones
+    // with the window manager itself.
+    Object lock = windowManager;
+    try {
+      Field lockField = windowManagerClass.getDeclaredField("mLock");
+      lockField.setAccessible(true);
+      lock = lockField.get(windowManager);
+    } catch (NoSuchFieldException exception) {
+      // Synchronize on the window manager.
+    }
+
+    ReflectiveWindowListProvider provider
+        = new ReflectiveWindowListProvider(windowManager, views, lock);
+    // Fail now rather than on the first search if the field has an
+    // unexpected type.
+    provider.getTopLevelViews();
+    return provider;
+  }
+
+  /**
+   * Reads the windows through reflection handles resolved in advance, and
+   * copies them only when they have changed since the last call.
+   */
+  private static class ReflectiveWindowListProvider
+      implements WindowListProvider {
+    private final Object windowManager;
+    private final Field viewsField;
+    private final Object lock;
+
+    // Guarded by lock.
+    @Nullable private Object lastViews;
+    private View[] lastCopy = new View[0];
+
+    ReflectiveWindowListProvider(
+        Object windowManager, Field viewsField, Object lock) {
+      this.windowManager = windowManager;
+      this.viewsField = viewsField;
+      this.lock = lock;
+    }
+
+    @Override
+    public View[] getTopLevelViews() {
+      synchronized (lock) {
+        Object views;
+        try {
+          views = viewsField.get(windowManager);
+        } catch (IllegalAccessException exception) {
+          throw new WebDriverException(REFLECTION_ERROR_MESSAGE, exception);
+        }
+
+        // Older versions replace the array whenever a window is added or
+        // removed, so an unchanged reference means unchanged windows. Lists
+        // are changed in place and must be compared.
+        if (views != lastViews || views instanceof List<?>) {
+          if (views == null) {
+            lastCopy = new View[0];
+          } else if (views instanceof View[]) {
+            View[] array = (View[]) views;
+            if (!sameViews(array)) {
+              lastCopy = array.clone();
+            }
+          } else {
+            List<?> list = (List<?>) views;
+            if (!sameViews(list)) {
+              lastCopy = list.toArray(new View[list.size()]);
+            }
+          }
+          lastViews = views;
+        }
+
+        return lastCopy;
+      }
+    }
+
+    private boolean sameViews(View[] views) {
+      if (views.length != lastCopy.length) {
+        return false;
+      }
+
+      for (int i = 0; i < views.length; i++) {
+        if (views[i] != lastCopy[i]) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private boolean sameViews(List<?> views) {
+      if (views.size() != lastCopy.length) {
+        return false;
+      }
+
+      for (int i = 0; i < lastCopy.length; i++) {
+        if (views.get(i) != lastCopy[i]) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+  }
+}
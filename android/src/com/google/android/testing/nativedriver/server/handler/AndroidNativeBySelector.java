@@ -18,6 +18,7 @@ limitations under the License.
 package com.google.android.testing.nativedriver.server.handler;
 
 import com.google.android.testing.nativedriver.common.AndroidNativeBy;
+import com.google.android.testing.nativedriver.common.FindsBySelector;
 import com.google.android.testing.nativedriver.common.FindsByText;
 
 import org.openqa.selenium.By;
@@ -36,6 +37,8 @@ public class AndroidNativeBySelector extends BySelector {
       return AndroidNativeBy.text(selector);
     } else if (FindsByText.USING_PARTIALTEXT.equals(method)) {
       return AndroidNativeBy.partialText(selector);
+    } else if (FindsBySelector.USING_SELECTOR.equals(method)) {
+      return AndroidNativeBy.selector(selector);
     } else {
       return super.pickFrom(method, selector);
     }
@@ -0,0 +1,112 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.common.FindsInBatch;
+import com.google.android.testing.nativedriver.common.Locator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handler for {@link FindsInBatch#findElementsInBatch(List)}. The
+ * {@code locators} parameter is a list of objects with the same
+ * {@code using} and {@code value} keys as the find element command, with no
+ * locator given twice. The response value is a list with one entry per
+ * locator, in the same order, each holding the locator and the list of
+ * elements it matched.
+ */
+public class AndroidNativeFindElementsInBatch
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile List<Locator> locators;
+  private volatile Response response;
+
+  public AndroidNativeFindElementsInBatch(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    Object rawLocators = allParameters.get("locators");
+
+    if (!(rawLocators instanceof List<?>)) {
+      throw new WebDriverException(
+          "Expected a list of locators but got: " + rawLocators);
+    }
+
+    List<Locator> parsed = Lists.newArrayList();
+    for (Object rawLocator : (List<?>) rawLocators) {
+      if (!(rawLocator instanceof Map<?, ?>)) {
+        throw new WebDriverException(
+            "Expected a locator object but got: " + rawLocator);
+      }
+
+      try {
+        parsed.add(Locator.fromJson((Map<?, ?>) rawLocator));
+      } catch (IllegalArgumentException exception) {
+        throw new WebDriverException(exception.getMessage(), exception);
+      }
+    }
+
+    locators = ImmutableList.copyOf(parsed);
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    response = newResponse();
+
+    Map<Locator, List<WebElement>> found
+        = ((FindsInBatch) getDriver()).findElementsInBatch(locators);
+
+    List<Map<String, Object>> results = Lists.newArrayList();
+    for (Map.Entry<Locator, List<WebElement>> entry : found.entrySet()) {
+      List<Map<String, String>> elementIds = Lists.newArrayList();
+      for (WebElement element : entry.getValue()) {
+        elementIds.add(
+            ImmutableMap.of("ELEMENT", getKnownElements().add(element)));
+      }
+
+      results.add(ImmutableMap.<String, Object>of(
+          "locator", entry.getKey().toJson(), "elements", elementIds));
+    }
+
+    response.setValue(results);
+    return ResultType.SUCCESS;
+  }
+
+  public Response getResponse() {
+    return response;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[find elements in batch: %s]", locators);
+  }
+}
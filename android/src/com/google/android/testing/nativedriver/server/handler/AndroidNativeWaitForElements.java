@@ -0,0 +1,112 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.common.Locator;
+import com.google.android.testing.nativedriver.common.WaitCondition;
+import com.google.android.testing.nativedriver.common.WaitsForElements;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Handler for {@link WaitsForElements#waitForElements}. The parameters are
+ * {@code locator}, an object with the same {@code using} and {@code value}
+ * keys as the find element command, {@code condition}, the name of a
+ * {@link WaitCondition}, an optional {@code argument} and the timeout
+ * {@code ms}. The response value is the list of elements described by the
+ * condition.
+ */
+public class AndroidNativeWaitForElements
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile Locator locator;
+  private volatile WaitCondition condition;
+  @Nullable private volatile String argument;
+  private volatile long timeoutInMillis;
+  private volatile Response response;
+
+  public AndroidNativeWaitForElements(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    Object rawLocator = allParameters.get("locator");
+    if (!(rawLocator instanceof Map<?, ?>)) {
+      throw new WebDriverException(
+          "Expected a locator object but got: " + rawLocator);
+    }
+
+    Object rawCondition = allParameters.get("condition");
+    if (!(rawCondition instanceof String)) {
+      throw new WebDriverException(
+          "Expected a wait condition name but got: " + rawCondition);
+    }
+
+    try {
+      locator = Locator.fromJson((Map<?, ?>) rawLocator);
+      condition = WaitCondition.forName((String) rawCondition);
+    } catch (IllegalArgumentException exception) {
+      throw new WebDriverException(exception.getMessage(), exception);
+    }
+
+    Object rawArgument = allParameters.get("argument");
+    argument = (rawArgument == null) ? null : String.valueOf(rawArgument);
+    timeoutInMillis = ((Number) allParameters.get("ms")).longValue();
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    response = newResponse();
+
+    List<WebElement> found = ((WaitsForElements) getDriver())
+        .waitForElements(locator, condition, argument, timeoutInMillis);
+
+    List<Map<String, String>> elementIds = Lists.newArrayList();
+    for (WebElement element : found) {
+      elementIds.add(
+          ImmutableMap.of("ELEMENT", getKnownElements().add(element)));
+    }
+
+    response.setValue(elementIds);
+    return ResultType.SUCCESS;
+  }
+
+  public Response getResponse() {
+    return response;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[wait for %s to be %s: %d ms]",
+        locator, condition.getName(), timeoutInMillis);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.common.HierarchyDiffKeys;
+import com.google.android.testing.nativedriver.server.AndroidNativeDriver;
+
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.Map;
+
+/**
+ * Handler of {@code /session/:sessionId/hierarchy/diff}, which returns the
+ * changes to the element hierarchy since the version given in the
+ * {@code since} parameter. See {@link HierarchyDiffKeys} for the format.
+ */
+public class GetHierarchyDiff
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile long since;
+  private volatile Response response;
+
+  public GetHierarchyDiff(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    Object rawSince = allParameters.get(HierarchyDiffKeys.SINCE);
+    since = (rawSince instanceof Number) ? ((Number) rawSince).longValue() : 0;
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    response = newResponse();
+    response.setValue(
+        ((AndroidNativeDriver) getDriver()).getHierarchyDiff(since));
+    return ResultType.SUCCESS;
+  }
+
+  public Response getResponse() {
+    return response;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[get hierarchy diff since version %d]", since);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.server.AndroidNativeDriver;
+import com.google.android.testing.nativedriver.server.HierarchySnapshot;
+
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Handler of {@code /session/:sessionId/source/stream}, which returns the
+ * same XML as {@link AndroidNativeDriver#getPageSource()}. Instead of being
+ * built as a string and wrapped in a JSON response, the XML is written
+ * directly to the HTTP response as the hierarchy is traversed.
+ */
+public class GetPageSourceStream
+    extends WebDriverHandler implements StreamingHandler {
+  private volatile AndroidNativeDriver driver;
+  private volatile HierarchySnapshot snapshot;
+
+  public GetPageSourceStream(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    driver = (AndroidNativeDriver) getDriver();
+    snapshot = driver.takeRootSnapshot();
+    return ResultType.SUCCESS;
+  }
+
+  @Override
+  public String getContentType() {
+    return "text/xml";
+  }
+
+  @Override
+  public void writeTo(Writer out) throws IOException {
+    driver.writePageSource(snapshot, out);
+  }
+
+  @Override
+  public String toString() {
+    return "[get page source stream]";
+  }
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.common.InputAction;
+import com.google.android.testing.nativedriver.common.PerformsActions;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handler for {@link PerformsActions#performActions}. The only parameter is
+ * {@code actions}, a list of objects in the form described by
+ * {@link InputAction#toJson}. The elements the actions refer to must have
+ * been found earlier in the session.
+ */
+public class PerformActions
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile List<Map<?, ?>> rawActions;
+
+  public PerformActions(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    Object value = allParameters.get("actions");
+    if (!(value instanceof List<?>)) {
+      throw new WebDriverException("Expected a list of actions but got: "
+          + value);
+    }
+
+    List<Map<?, ?>> actions = Lists.newArrayList();
+    for (Object rawAction : (List<?>) value) {
+      if (!(rawAction instanceof Map<?, ?>)) {
+        throw new WebDriverException(
+            "Expected an action object but got: " + rawAction);
+      }
+      actions.add((Map<?, ?>) rawAction);
+    }
+
+    rawActions = ImmutableList.copyOf(actions);
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    Function<String, WebElement> elementsById
+        = new Function<String, WebElement>() {
+          @Override
+          public WebElement apply(String id) {
+            return getKnownElements().get(id);
+          }
+        };
+
+    List<InputAction> actions = Lists.newArrayList();
+    try {
+      for (Map<?, ?> rawAction : rawActions) {
+        actions.add(InputAction.fromJson(rawAction, elementsById));
+      }
+    } catch (IllegalArgumentException exception) {
+      throw new WebDriverException(exception.getMessage(), exception);
+    }
+
+    ((PerformsActions) getDriver()).performActions(actions);
+    return ResultType.SUCCESS;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[perform %d actions]", rawActions.size());
+  }
+}
@@ -0,0 +1,68 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.common.RecordsInput;
+
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.Map;
+
+/**
+ * Handler of {@code /session/:sessionId/input/replay}, which replays the
+ * input log in the file on the device given by the {@code path} parameter at
+ * the {@code speed} parameter, and returns the number of events injected.
+ * See {@link RecordsInput#replayInput}.
+ */
+public class ReplayInput
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile String path;
+  private volatile double speed;
+  private volatile Response response;
+
+  public ReplayInput(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    path = (String) allParameters.get("path");
+    speed = ((Number) allParameters.get("speed")).doubleValue();
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    response = newResponse();
+    response.setValue(((RecordsInput) getDriver()).replayInput(path, speed));
+    return ResultType.SUCCESS;
+  }
+
+  public Response getResponse() {
+    return response;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[replay input from %s at %sx]", path, speed);
+  }
+}
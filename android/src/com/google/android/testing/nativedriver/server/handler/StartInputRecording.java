@@ -0,0 +1,61 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.common.RecordsInput;
+
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.Map;
+
+/**
+ * Handler of {@code /session/:sessionId/input/record}, which starts recording
+ * input events to the file on the device given by the {@code path}
+ * parameter, from the {@code source} parameter. See
+ * {@link RecordsInput#startInputRecording}.
+ */
+public class StartInputRecording
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile String path;
+  private volatile String source;
+
+  public StartInputRecording(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    path = (String) allParameters.get("path");
+    source = (String) allParameters.get("source");
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    ((RecordsInput) getDriver()).startInputRecording(path, source);
+    return ResultType.SUCCESS;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[record %s input to %s]", source, path);
+  }
+}
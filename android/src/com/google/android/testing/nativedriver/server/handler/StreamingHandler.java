@@ -0,0 +1,39 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A handler whose result is written directly to the HTTP response by a
+ * {@link StreamingResult}, rather than being collected into a
+ * {@code Response} and converted to JSON.
+ */
+public interface StreamingHandler {
+  /**
+   * Returns the MIME type of the output, not including the character set.
+   */
+  String getContentType();
+
+  /**
+   * Writes the result of the handler. This is called after the handler has
+   * been called successfully.
+   */
+  void writeTo(Writer out) throws IOException;
+}
@@ -0,0 +1,48 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import org.openqa.selenium.remote.server.rest.Handler;
+import org.openqa.selenium.remote.server.rest.Renderer;
+
+import java.io.Writer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Renders the result of a {@link StreamingHandler} by letting it write to the
+ * HTTP response as UTF-8 text. The text is not buffered beyond the buffer of
+ * the servlet container, but the handler may still hold in memory the data it
+ * writes out, as the page source handler holds its snapshot.
+ */
+public class StreamingResult implements Renderer {
+  @Override
+  public void render(HttpServletRequest request, HttpServletResponse response,
+      Handler handler) throws Exception {
+    StreamingHandler streamingHandler = (StreamingHandler) handler;
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(streamingHandler.getContentType());
+    response.setCharacterEncoding("UTF-8");
+
+    Writer out = response.getWriter();
+    streamingHandler.writeTo(out);
+    out.flush();
+  }
+}
@@ -0,0 +1,59 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver.server.handler;
+
+import com.google.android.testing.nativedriver.server.AndroidNativeDriver;
+
+import org.openqa.selenium.remote.server.DriverSessions;
+import org.openqa.selenium.remote.server.JsonParametersAware;
+import org.openqa.selenium.remote.server.handler.WebDriverHandler;
+import org.openqa.selenium.remote.server.rest.ResultType;
+
+import java.util.Map;
+
+/**
+ * Handler of {@code /session/:sessionId/quiescence}, which blocks until the UI
+ * is quiet or the number of milliseconds in the {@code ms} parameter has
+ * passed. See
+ * {@link com.google.android.testing.nativedriver.server.QuiescenceMonitor}.
+ */
+public class WaitForQuiescence
+    extends WebDriverHandler implements JsonParametersAware {
+  private volatile long timeoutInMillis;
+
+  public WaitForQuiescence(DriverSessions sessions) {
+    super(sessions);
+  }
+
+  @Override
+  public void setJsonParameters(Map<String, Object> allParameters)
+      throws Exception {
+    timeoutInMillis = ((Number) allParameters.get("ms")).longValue();
+  }
+
+  @Override
+  public ResultType call() throws Exception {
+    ((AndroidNativeDriver) getDriver()).waitForQuiescence(timeoutInMillis);
+    return ResultType.SUCCESS;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[wait for quiescence: %d ms]", timeoutInMillis);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver;
+
+import com.google.android.testing.nativedriver.client.AndroidNativeDriver;
+import com.google.android.testing.nativedriver.client.AndroidNativeDriverBuilder;
+import com.google.android.testing.nativedriver.common.AndroidNativeBy;
+
+import junit.framework.TestCase;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * An integration test which exercises the
+ * {@link com.google.android.testing.nativedriver.common.FindsBySelector}
+ * implementation on the elements and driver classes.
+ */
+public class FindBySelectorTest extends TestCase {
+  private AndroidNativeDriver driver;
+
+  @Override
+  protected void setUp() {
+    driver = getDriver();
+  }
+
+  @Override
+  protected void tearDown() {
+    driver.quit();
+  }
+
+  protected AndroidNativeDriver getDriver() {
+    return new AndroidNativeDriverBuilder()
+        .withDefaultServer()
+        .build();
+  }
+
+  private void openPlanetSpinner() {
+    driver.startActivity("com.google.android.testing.nativedriver." +
+        "simplelayouts.SpinnersActivity");
+    driver.findElement(By.id("planet_spinner")).click();
+  }
+
+  public void testFindBySelector_childOfListView() {
+    openPlanetSpinner();
+
+    assertEquals(
+        "Should have found two planets with 'ar' in name: Earth and Mars.",
+        2, driver.findElements(AndroidNativeBy.selector(
+            "android.widget.ListView > TextView[text*='ar']")).size());
+  }
+
+  public void testFindBySelector_descendantOfElement() {
+    openPlanetSpinner();
+
+    assertEquals("Mars", driver.findElement(AndroidNativeBy.selector(
+        "ListView TextView[text^='Ma'][text$='rs']")).getText());
+  }
+
+  public void testFindBySelector_noResults() {
+    openPlanetSpinner();
+
+    try {
+      driver.findElement(
+          AndroidNativeBy.selector("ListView > TextView[text='Pluto']"));
+      fail("Should have thrown a NoSuchElementException.");
+    } catch (NoSuchElementException exception) {
+      // Expected exception.
+    }
+  }
+
+  public void testFindBySelector_invalidSelector() {
+    openPlanetSpinner();
+
+    try {
+      driver.findElement(AndroidNativeBy.selector("ListView > [text"));
+      fail("Should have thrown a WebDriverException.");
+    } catch (WebDriverException exception) {
+      // Expected exception.
+    }
+  }
+}
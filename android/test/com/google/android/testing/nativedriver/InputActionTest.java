@@ -0,0 +1,50 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver;
+
+import com.google.android.testing.nativedriver.common.InputAction;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+
+import junit.framework.TestCase;
+
+import org.openqa.selenium.WebElement;
+
+/**
+ * Tests the conversion of {@link InputAction}s from their JSON form. Unlike
+ * the other tests in this package, this does not need a device.
+ */
+public class InputActionTest extends TestCase {
+  public void testFromJson_keyDownNeedsOneKey() {
+    Function<String, WebElement> noElements
+        = new Function<String, WebElement>() {
+          @Override
+          public WebElement apply(String id) {
+            return null;
+          }
+        };
+
+    try {
+      InputAction.fromJson(
+          ImmutableMap.of("action", "keyDown", "value", ""), noElements);
+      fail("Should have thrown an IllegalArgumentException.");
+    } catch (IllegalArgumentException exception) {
+      // Expected exception.
+    }
+  }
+}
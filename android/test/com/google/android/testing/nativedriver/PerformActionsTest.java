@@ -0,0 +1,87 @@
+/*
+Copyright 2011 NativeDriver committers
+Copyright 2011 Google Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.google.android.testing.nativedriver;
+
+import com.google.android.testing.nativedriver.client.AndroidNativeDriver;
+import com.google.android.testing.nativedriver.client.AndroidNativeDriverBuilder;
+import com.google.android.testing.nativedriver.common.InputAction;
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+/**
+ * An integration test which performs sequences of actions with the
+ * {@link com.google.android.testing.nativedriver.common.PerformsActions}
+ * implementation of the driver.
+ */
+public class PerformActionsTest extends TestCase {
+  private AndroidNativeDriver driver;
+
+  @Override
+  protected void setUp() {
+    driver = getDriver();
+  }
+
+  @Override
+  protected void tearDown() {
+    driver.quit();
+  }
+
+  protected AndroidNativeDriver getDriver() {
+    return new AndroidNativeDriverBuilder()
+        .withDefaultServer()
+        .build();
+  }
+
+  private void startTextValueActivity() {
+    driver.startActivity("com.google.android.testing.nativedriver"
+        + ".simplelayouts.TextValueActivity");
+  }
+
+  public void testPerformActions_tapAndSendKeys() {
+    startTextValueActivity();
+    WebElement textEditView = driver.findElement(By.id("EditText01"));
+    textEditView.clear();
+
+    driver.performActions(ImmutableList.of(
+        InputAction.tap(textEditView),
+        InputAction.sendKeys(textEditView, "typed in one request")));
+
+    assertEquals("typed in one request", textEditView.getText());
+  }
+
+  public void testPerformActions_unknownElement() {
+    startTextValueActivity();
+    RemoteWebElement unknownElement = new RemoteWebElement();
+    unknownElement.setParent(driver);
+    unknownElement.setId("no-such-element");
+
+    try {
+      driver.performActions(
+          ImmutableList.<InputAction>of(InputAction.tap(unknownElement)));
+      fail("Should have thrown a WebDriverException.");
+    } catch (WebDriverException exception) {
+      // Expected exception.
+    }
+  }
+}